@@ -0,0 +1,97 @@
+package unyt.registry.bench;
+
+import org.openjdk.jmh.annotations.*;
+import unyt.registry.Registry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// One writer adding students and their grades while readers look the new records up, on a copy of the
+// dataset. Doubles as a stress test: every read checks that a grade's student is there, that the
+// student's totals match its grades, and that a query's header agrees with the rows it returned; a
+// violation fails the run.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dregistry.durability=none")
+@State(Scope.Group)
+public class ConcurrencyBenchmark {
+
+    private static final long FIRST_NEW_STUDENT = 900_000_000L;
+    private static final String COURSE = DatasetGenerator.courseCode(0, false);
+
+    @Param({"100000"})
+    public int grades;
+
+    private Path folder;
+    private Registry registry;
+    private PrintStream stdout;
+    // highest student ID whose grade has been added, or FIRST_NEW_STUDENT - 1
+    private final AtomicLong lastWritten = new AtomicLong(FIRST_NEW_STUDENT - 1);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        folder = DatasetGenerator.copy(grades);
+
+        // the CLI methods report every add on stdout
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        registry = new Registry();
+        registry.load(folder.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        registry.close();
+        System.setOut(stdout);
+        DatasetGenerator.delete(folder);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void writer() {
+        long id = lastWritten.get() + 1;
+        registry.addStudentFromCli(id + ", Stress, Writer" + id % 1000 + ", , UG");
+        registry.addGradeFromCli(id + ", " + COURSE + ", Fall2025, " + (40 + id % 61));
+        lastWritten.set(id);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public String reader() {
+        long last = lastWritten.get();
+        if (last < FIRST_NEW_STUDENT) return registry.findCourseDisplay(COURSE);
+        long id = Math.max(FIRST_NEW_STUDENT, last - ThreadLocalRandom.current().nextLong(1024));
+
+        // the grade was added after the student, so whichever state a read sees has both or neither
+        StringBuilder grades = new StringBuilder();
+        registry.queryTo("grade", "studentID=" + id, grades);
+        check(grades.toString().equals("1 records found\n" + id + ", " + COURSE + ", Fall2025, " + (40 + id % 61) + "\n"),
+                "grade of " + id + " missing or torn: " + grades);
+
+        String student = registry.findStudentDisplay(String.valueOf(id));
+        check(student.contains("courses: 1\n"), "totals of " + id + " do not match its grades: " + student);
+
+        Registry.Transcript t = registry.transcript(String.valueOf(id));
+        check(t != null && t.semesters().size() == 1, "transcript of " + id + " is incomplete");
+
+        // two passes over the same candidates: the count and the rows must agree while the writer adds
+        StringBuilder recent = new StringBuilder();
+        registry.queryTo("student", "surname~Writer" + id % 1000 + ", limit=1000000", recent);
+        String[] lines = recent.toString().split("\n");
+        check(lines[0].equals((lines.length - 1) + " records found"), "query header disagrees with its rows");
+        return student;
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) throw new IllegalStateException(message);
+    }
+}
@@ -0,0 +1,118 @@
+package unyt.registry.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+// Writes a valid students/courses/grades folder with roughly 20 grades per student.
+// Output is deterministic for a given size and cached under java.io.tmpdir, so forks reuse it.
+public final class DatasetGenerator {
+    private DatasetGenerator() {}
+
+    static final int GRADES_PER_STUDENT = 20;
+    static final int FIRST_STUDENT_ID = 1_000_000;
+
+    private static final String[] NAMES = {"Jessica", "Karen", "Michael", "Jane", "Omar", "Li", "Elira", "Arben", "Sara", "Tom"};
+    private static final String[] SURNAMES = {"Weaver", "Brown", "Doe", "Hoxha", "Nguyen", "Smith", "Kola", "Garcia", "Lee", "Rossi"};
+
+    public static Path ensure(int grades) {
+        Path dir = Path.of(System.getProperty("java.io.tmpdir"), "registry-bench-" + grades);
+        if (Files.exists(dir.resolve(".complete"))) return dir;
+        try {
+            Files.createDirectories(dir);
+            generate(dir, grades);
+            Files.writeString(dir.resolve(".complete"), "");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return dir;
+    }
+
+    // A private copy of the dataset's data files, for benchmarks whose load or writes would otherwise leave
+    // a snapshot or log in the shared folder.
+    public static Path copy(int grades) throws IOException {
+        Path source = ensure(grades);
+        Path dir = Files.createTempDirectory("registry-bench-copy");
+        for (String f : new String[]{"students.txt", "courses.txt", "grades.txt"}) {
+            Files.copy(source.resolve(f), dir.resolve(f));
+        }
+        return dir;
+    }
+
+    public static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.delete(p);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    public static int studentCount(int grades) {
+        return Math.max(10, grades / GRADES_PER_STUDENT);
+    }
+
+    public static void generate(Path dir, int grades) throws IOException {
+        int students = studentCount(grades);
+        int undergrad = Math.max(GRADES_PER_STUDENT, Math.min(1500, grades / 200));
+        int graduate = undergrad;
+        Random rnd = new Random(grades);
+
+        try (BufferedWriter w = Files.newBufferedWriter(dir.resolve("students.txt"), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < students; i++) {
+                String name = NAMES[i % NAMES.length];
+                String surname = SURNAMES[(i / NAMES.length) % SURNAMES.length] + (i % 1000);
+                String email = i % 10 == 0 ? "" : name.toLowerCase() + "." + surname.toLowerCase() + "@uni.edu";
+                w.write((FIRST_STUDENT_ID + i) + ", " + name + ", " + surname + ", " + email + ", " + (isGraduate(i) ? "G" : "UG"));
+                w.newLine();
+            }
+        }
+
+        try (BufferedWriter w = Files.newBufferedWriter(dir.resolve("courses.txt"), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < undergrad; i++) {
+                w.write(courseCode(i, false) + ", Introduction to Topic " + i + ", " + (2 + i % 3));
+                w.newLine();
+            }
+            for (int i = 0; i < graduate; i++) {
+                w.write(courseCode(i, true) + ", Advanced Seminar " + i + ", " + (2 + i % 3));
+                w.newLine();
+            }
+        }
+
+        try (BufferedWriter w = Files.newBufferedWriter(dir.resolve("grades.txt"), StandardCharsets.UTF_8)) {
+            int written = 0;
+            for (int s = 0; s < students && written < grades; s++) {
+                boolean grad = isGraduate(s);
+                int pool = grad ? graduate : undergrad;
+                for (int j = 0; j < GRADES_PER_STUDENT && written < grades; j++) {
+                    int c = (s * 7 + j) % pool;
+                    String semester = (j % 2 == 0 ? "Spring" : "Fall") + (2015 + (j / 2) % 10);
+                    w.write((FIRST_STUDENT_ID + s) + ", " + courseCode(c, grad) + ", " + semester + ", " + (40 + rnd.nextInt(61)));
+                    w.newLine();
+                    written++;
+                }
+            }
+        }
+    }
+
+    static boolean isGraduate(int student) {
+        return student % 5 == 0;
+    }
+
+    // undergraduate codes use 100-399, graduate codes 500-899, under two-letter prefixes
+    static String courseCode(int i, boolean graduate) {
+        int per = graduate ? 400 : 300;
+        int prefix = i / per;
+        String letters = "" + (char) ('A' + prefix / 26 % 26) + (char) ('A' + prefix % 26);
+        return letters + ((graduate ? 500 : 100) + i % per);
+    }
+}
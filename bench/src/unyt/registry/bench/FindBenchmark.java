@@ -0,0 +1,18 @@
+package unyt.registry.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindBenchmark {
+
+    @Benchmark
+    public String findStudent(RegistryState s, RegistryState.Cursor cursor) {
+        return s.registry.findStudentDisplay(cursor.nextStudent(s));
+    }
+}
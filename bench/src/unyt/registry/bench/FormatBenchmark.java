@@ -0,0 +1,48 @@
+package unyt.registry.bench;
+
+import org.openjdk.jmh.annotations.*;
+import unyt.registry.GradingService;
+import unyt.registry.TwoDecimals;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Two-decimal formatting of 100k GPA values into one buffer: TwoDecimals against the
+// String.format(Locale.US, "%.2f", ...) calls it replaced in the writers and find output.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormatBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    private double[] values;
+    private StringBuilder sb;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random rnd = new Random(rows);
+        values = new double[rows];
+        for (int i = 0; i < rows; i++) values[i] = GradingService.round2(rnd.nextDouble() * 4.0);
+        sb = new StringBuilder(rows * 6);
+    }
+
+    @Benchmark
+    public int twoDecimals() {
+        sb.setLength(0);
+        for (double v : values) TwoDecimals.append(sb, v).append('\n');
+        return sb.length();
+    }
+
+    @Benchmark
+    public int stringFormat() {
+        sb.setLength(0);
+        for (double v : values) sb.append(String.format(Locale.US, "%.2f", v)).append('\n');
+        return sb.length();
+    }
+}
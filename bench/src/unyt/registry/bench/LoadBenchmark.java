@@ -0,0 +1,36 @@
+package unyt.registry.bench;
+
+import org.openjdk.jmh.annotations.*;
+import unyt.registry.DataLoader;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Parsing and validating the three text files, sequentially or in chunks in parallel. Nothing is
+// written, so the shared dataset is read directly; Registry.load is measured by RegistryLoadBenchmark.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int grades;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private Path folder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        folder = DatasetGenerator.ensure(grades);
+    }
+
+    @Benchmark
+    public DataLoader.LoadResult loadAll() {
+        return DataLoader.loadAll(folder.toString(), parallel);
+    }
+}
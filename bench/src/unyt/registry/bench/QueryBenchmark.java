@@ -0,0 +1,40 @@
+package unyt.registry.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+    // entity:criteria, one '=' and one '~' case per entity
+    @Param({
+            "student:id=1000001",
+            "student:surname~Brown1",
+            "course:code=AA100",
+            "course:title~Seminar 1",
+            "grade:studentID=1000001",
+            "grade:semester~2019"
+    })
+    public String query;
+
+    private String entity;
+    private String criteria;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int colon = query.indexOf(':');
+        entity = query.substring(0, colon);
+        criteria = query.substring(colon + 1);
+    }
+
+    @Benchmark
+    public String queryDisplay(RegistryState s) {
+        return s.registry.queryDisplay(entity, criteria);
+    }
+}
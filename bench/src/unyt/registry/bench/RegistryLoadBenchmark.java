@@ -0,0 +1,57 @@
+package unyt.registry.bench;
+
+import org.openjdk.jmh.annotations.*;
+import unyt.registry.Registry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// A whole Registry.load, from the text files or from the folder's binary snapshot. The loader picks
+// sequential or parallel parsing by file size, as it does for the CLI.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegistryLoadBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int grades;
+
+    // whether Registry.load may read and write the folder's binary snapshot
+    @Param({"false", "true"})
+    public boolean snapshot;
+
+    private Path folder;
+    private PrintStream stdout;
+
+    // Registry.load runs on a private copy whose snapshot, if any, is written here once; every measured
+    // load then finds it current and only reads it. load reports on stdout, which is discarded meanwhile.
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        folder = DatasetGenerator.copy(grades);
+        System.setProperty("registry.snapshot", Boolean.toString(snapshot));
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        registryLoad();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.setOut(stdout);
+        System.clearProperty("registry.snapshot");
+        DatasetGenerator.delete(folder);
+    }
+
+    @Benchmark
+    public boolean registryLoad() {
+        try (Registry r = new Registry()) {
+            r.load(folder.toString());
+            return r.isLoaded();
+        }
+    }
+}
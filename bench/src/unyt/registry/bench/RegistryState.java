@@ -0,0 +1,58 @@
+package unyt.registry.bench;
+
+import org.openjdk.jmh.annotations.*;
+import unyt.registry.Registry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+
+// A registry loaded from a private copy of a generated dataset, shared by the read-side benchmarks. The
+// load writes its snapshot into the copy, never into the shared dataset, and the copy is deleted with the
+// registry closed at the end of the trial.
+@State(Scope.Benchmark)
+public class RegistryState {
+
+    @Param({"10000", "100000", "1000000"})
+    public int grades;
+
+    public Path folder;
+    public Registry registry;
+    public String[] studentIds;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        folder = DatasetGenerator.copy(grades);
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        registry = new Registry();
+        try {
+            registry.load(folder.toString());
+        } finally {
+            System.setOut(stdout);
+        }
+
+        int students = DatasetGenerator.studentCount(grades);
+        studentIds = new String[1024];
+        for (int i = 0; i < studentIds.length; i++) {
+            studentIds[i] = String.valueOf(DatasetGenerator.FIRST_STUDENT_ID + (int) ((i * 2654435761L) % students));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        registry.close();
+        DatasetGenerator.delete(folder);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        public String nextStudent(RegistryState s) {
+            return s.studentIds[next++ & (s.studentIds.length - 1)];
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package unyt.registry.bench;
+
+import org.openjdk.jmh.annotations.*;
+import unyt.registry.Registry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportBenchmark {
+
+    @Benchmark
+    public List<Registry.StudentRow> topStudents(RegistryState s) {
+        return s.registry.topStudents(100);
+    }
+
+    @Benchmark
+    public List<Registry.CourseRow> topCourses(RegistryState s) {
+        return s.registry.topCourses(100);
+    }
+
+    @Benchmark
+    public Registry.Transcript transcript(RegistryState s, RegistryState.Cursor cursor) {
+        return s.registry.transcript(cursor.nextStudent(s));
+    }
+}
@@ -0,0 +1,35 @@
+package unyt.registry.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import unyt.registry.Validation;
+
+import java.util.concurrent.TimeUnit;
+
+// Validation's character scanners against the String.matches checks they replaced.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+
+    private String id = "9024882";
+    private String code = "CS101";
+    private String semester = "Spring2024";
+
+    @Benchmark
+    public void scanners() {
+        Validation.validateStudentId(id);
+        Validation.validateCourseCode(code);
+        Validation.validateSemester(semester);
+    }
+
+    @Benchmark
+    public void regexBaseline(Blackhole bh) {
+        bh.consume(id.trim().matches("\\d+"));
+        bh.consume(code.trim().matches("[A-Z]{2,4}\\d{3}"));
+        bh.consume(semester.trim().matches("(Spring|Fall)\\d{4}"));
+    }
+}
@@ -0,0 +1,62 @@
+package unyt.registry.bench;
+
+import org.openjdk.jmh.annotations.*;
+import unyt.registry.Registry;
+import unyt.registry.ReportWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WriterBenchmark {
+
+    @Param({"csv", "json", "xml"})
+    public String format;
+
+    // student rows per export; capped at the number of students in the dataset
+    @Param({"100", "100000"})
+    public int rows;
+
+    private List<Registry.StudentRow> students;
+    private List<Registry.CourseRow> courses;
+    private Registry.Transcript transcript;
+    private ReportWriter writer;
+    private Path out;
+
+    @Setup(Level.Trial)
+    public void setUp(RegistryState s) throws IOException {
+        students = s.registry.topStudents(rows);
+        courses = s.registry.topCourses(100);
+        transcript = s.registry.transcript(s.studentIds[0]);
+        out = Files.createTempFile("registry-bench", "." + format);
+        writer = ReportWriter.forFile(out.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(out);
+    }
+
+    @Benchmark
+    public void topStudents() {
+        ReportWriter.toFile(out, w -> writer.topStudents(w, students));
+    }
+
+    @Benchmark
+    public void topCourses() {
+        ReportWriter.toFile(out, w -> writer.topCourses(w, courses));
+    }
+
+    @Benchmark
+    public void transcript() {
+        ReportWriter.toFile(out, w -> writer.transcript(w, transcript));
+    }
+}
@@ -1,80 +1,135 @@
 package unyt.registry;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.*;
+import java.io.Writer;
 import java.util.List;
-import java.util.Locale;
 
-public class CsvWriter {
+public class CsvWriter implements ReportWriter {
 
-    public static void writeTopStudents(Path out, List<Registry.StudentRow> rows) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("id,name,surname,level,totalCredits,gpa\n");
+    public static final CsvWriter INSTANCE = new CsvWriter();
+
+    @Override
+    public void topStudents(Writer out, List<Registry.StudentRow> rows) throws IOException {
+        out.write("id,name,surname,level,totalCredits,gpa\n");
         for (Registry.StudentRow r : rows) {
-            sb.append(esc(r.student().id())).append(",")
-                    .append(esc(r.student().name())).append(",")
-                    .append(esc(r.student().surname())).append(",")
-                    .append(esc(r.student().level().label())).append(",")
-                    .append(r.totalCredits()).append(",")
-                    .append(String.format(Locale.US, "%.2f", r.gpa()))
-                    .append("\n");
+            esc(out, r.student().id());
+            out.write(',');
+            esc(out, r.student().name());
+            out.write(',');
+            esc(out, r.student().surname());
+            out.write(',');
+            esc(out, r.student().level().label());
+            out.write(',');
+            out.write(Integer.toString(r.totalCredits()));
+            out.write(',');
+            TwoDecimals.appendTo(out, r.gpa());
+            out.write('\n');
         }
-        write(out, sb.toString());
     }
 
-    public static void writeTopCourses(Path out, List<Registry.CourseRow> rows) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("code,title,credits,level,gradeCount\n");
+    @Override
+    public void topCourses(Writer out, List<Registry.CourseRow> rows) throws IOException {
+        out.write("code,title,credits,level,gradeCount\n");
         for (Registry.CourseRow r : rows) {
-            sb.append(esc(r.course().code())).append(",")
-                    .append(esc(r.course().title())).append(",")
-                    .append(r.course().credits()).append(",")
-                    .append(esc(r.level().label())).append(",")
-                    .append(r.gradeCount())
-                    .append("\n");
+            esc(out, r.course().code());
+            out.write(',');
+            esc(out, r.course().title());
+            out.write(',');
+            out.write(Integer.toString(r.course().credits()));
+            out.write(',');
+            esc(out, r.level().label());
+            out.write(',');
+            out.write(Integer.toString(r.gradeCount()));
+            out.write('\n');
+        }
+    }
+
+    @Override
+    public void transcript(Writer out, Registry.Transcript t) throws IOException {
+        out.write("studentId,studentName,studentSurname,level\n");
+        esc(out, t.student().id());
+        out.write(',');
+        esc(out, t.student().name());
+        out.write(',');
+        esc(out, t.student().surname());
+        out.write(',');
+        esc(out, t.student().level().label());
+        out.write("\n\n");
+
+        out.write("semester,courseCode,courseTitle,credits,numericGrade,letterGrade,gradePoints\n");
+        for (Registry.TranscriptSemester sem : t.semesters()) {
+            for (Registry.TranscriptLine line : sem.lines()) {
+                esc(out, sem.semester());
+                out.write(',');
+                esc(out, line.courseCode());
+                out.write(',');
+                esc(out, line.courseTitle());
+                out.write(',');
+                out.write(Integer.toString(line.credits()));
+                out.write(',');
+                out.write(Integer.toString(line.numericGrade()));
+                out.write(',');
+                esc(out, line.letterGrade());
+                out.write(',');
+                TwoDecimals.appendTo(out, line.gradePoints());
+                out.write('\n');
+            }
         }
-        write(out, sb.toString());
     }
 
-    public static void writeTranscript(Path out, Registry.Transcript t) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("studentId,studentName,studentSurname,level\n");
-        sb.append(esc(t.student().id())).append(",")
-                .append(esc(t.student().name())).append(",")
-                .append(esc(t.student().surname())).append(",")
-                .append(esc(t.student().level().label())).append("\n\n");
+    @Override
+    public void transcriptsStart(Writer out) throws IOException {
+        out.write("studentId,studentName,studentSurname,level,semester,courseCode,courseTitle,credits,numericGrade,letterGrade,gradePoints\n");
+    }
 
-        sb.append("semester,courseCode,courseTitle,credits,numericGrade,letterGrade,gradePoints\n");
+    // one row per course, prefixed with the student columns
+    @Override
+    public void transcriptsEntry(Writer out, Registry.Transcript t, boolean first) throws IOException {
         for (Registry.TranscriptSemester sem : t.semesters()) {
             for (Registry.TranscriptLine line : sem.lines()) {
-                sb.append(esc(sem.semester())).append(",")
-                        .append(esc(line.courseCode())).append(",")
-                        .append(esc(line.courseTitle())).append(",")
-                        .append(line.credits()).append(",")
-                        .append(line.numericGrade()).append(",")
-                        .append(esc(line.letterGrade())).append(",")
-                        .append(String.format(Locale.US, "%.2f", line.gradePoints()))
-                        .append("\n");
+                esc(out, t.student().id());
+                out.write(',');
+                esc(out, t.student().name());
+                out.write(',');
+                esc(out, t.student().surname());
+                out.write(',');
+                esc(out, t.student().level().label());
+                out.write(',');
+                esc(out, sem.semester());
+                out.write(',');
+                esc(out, line.courseCode());
+                out.write(',');
+                esc(out, line.courseTitle());
+                out.write(',');
+                out.write(Integer.toString(line.credits()));
+                out.write(',');
+                out.write(Integer.toString(line.numericGrade()));
+                out.write(',');
+                esc(out, line.letterGrade());
+                out.write(',');
+                TwoDecimals.appendTo(out, line.gradePoints());
+                out.write('\n');
             }
         }
-        write(out, sb.toString());
     }
 
-    private static String esc(String s) {
-        if (s == null) return "";
-        String v = s;
-        boolean needs = v.contains(",") || v.contains("\"") || v.contains("\n");
-        if (v.contains("\"")) v = v.replace("\"", "\"\"");
-        return needs ? "\"" + v + "\"" : v;
+    @Override
+    public void transcriptsEnd(Writer out, int count) {
     }
 
-    private static void write(Path out, String content) {
-        try {
-            Files.writeString(out, content, StandardCharsets.UTF_8,
-                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-        } catch (IOException e) {
-            throw new IllegalArgumentException("cannot write report file");
+    private static void esc(Writer out, String s) throws IOException {
+        if (s == null) return;
+        boolean needs = s.indexOf(',') >= 0 || s.indexOf('"') >= 0 || s.indexOf('\n') >= 0;
+        if (!needs) {
+            out.write(s);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '"') out.write('"');
+            out.write(ch);
         }
+        out.write('"');
     }
 }
@@ -2,14 +2,49 @@ package unyt.registry;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
 
 public class DataLoader {
 
+    // grades files at least this big are loaded in parallel by loadAll(String)
+    static final long PARALLEL_THRESHOLD = 16L * 1024 * 1024;
+    static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    // uses the folder's binary snapshot when it is current, otherwise parses the text files
     public static LoadResult loadAll(String folderPath) {
+        Path folder = resolveFolder(folderPath);
+        if (Snapshot.enabled()) {
+            LoadResult snap = readSnapshot(folder);
+            if (snap != null) return snap;
+        }
+
+        boolean parallel;
+        try {
+            parallel = Files.size(folder.resolve("grades.txt")) >= PARALLEL_THRESHOLD;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot read grades.txt");
+        }
+        return parallel ? loadParallel(folder) : loadSequential(folder);
+    }
+
+    public static LoadResult loadAll(String folderPath, boolean parallel) {
+        Path folder = resolveFolder(folderPath);
+        return parallel ? loadParallel(folder) : loadSequential(folder);
+    }
+
+    private static Path resolveFolder(String folderPath) {
         Path folder = Path.of(folderPath);
 
         if (!Files.exists(folder) || !Files.isDirectory(folder)) {
@@ -23,15 +58,92 @@ public class DataLoader {
         if (!Files.exists(studentsFile) || !Files.exists(coursesFile) || !Files.exists(gradesFile)) {
             throw new IllegalArgumentException("data files not found");
         }
+        return folder;
+    }
 
-        List<Student> students = loadStudents(studentsFile);
-        List<Course> courses = loadCourses(coursesFile);
-        List<Evaluation> grades = loadGrades(gradesFile);
+    private static LoadResult loadSequential(Path folder) {
+        List<Student> students = parseFile(folder.resolve("students.txt"), DataLoader::loadStudents);
+        List<Course> courses = parseFile(folder.resolve("courses.txt"), DataLoader::loadCourses);
+        List<Evaluation> grades = parseFile(folder.resolve("grades.txt"), DataLoader::loadGrades);
 
         return new LoadResult(students, courses, grades, folder);
     }
 
-    private static List<Student> loadStudents(Path file) {
+    // students and courses are parsed on the common pool while the calling thread splits grades into chunks;
+    // failures are reported in the same file order as the sequential load
+    private static LoadResult loadParallel(Path folder) {
+        CompletableFuture<List<Student>> students = CompletableFuture.supplyAsync(
+                () -> parseFile(folder.resolve("students.txt"), DataLoader::loadStudents));
+        CompletableFuture<List<Course>> courses = CompletableFuture.supplyAsync(
+                () -> parseFile(folder.resolve("courses.txt"), DataLoader::loadCourses));
+
+        RuntimeException gradesError = null;
+        List<Evaluation> grades = null;
+        try {
+            grades = parseFile(folder.resolve("grades.txt"), DataLoader::loadGradesChunked);
+        } catch (RuntimeException e) {
+            gradesError = e;
+        }
+
+        List<Student> s = join(students);
+        List<Course> c = join(courses);
+        if (gradesError != null) throw gradesError;
+
+        return new LoadResult(s, c, grades, folder);
+    }
+
+    private static <T> T join(CompletableFuture<T> f) {
+        try {
+            return f.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    // Runs one of the file loaders below as a ParseFile event. The loader fills in the line count (and
+    // chunks); the file size is only looked up when the event is recorded.
+    private static <T> List<T> parseFile(Path file, BiFunction<Path, Events.ParseFile, List<T>> loader) {
+        Events.ParseFile event = new Events.ParseFile();
+        event.begin();
+        try {
+            List<T> records = loader.apply(file, event);
+            event.records = records.size();
+            return records;
+        } catch (RuntimeException e) {
+            event.failure = e.getMessage();
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.file = file.toString();
+                try {
+                    event.bytes = Files.size(file);
+                } catch (IOException e) {
+                    event.bytes = -1;
+                }
+                event.commit();
+            }
+        }
+    }
+
+    // a snapshot that is missing or out of date is still recorded, with no records
+    private static LoadResult readSnapshot(Path folder) {
+        Events.ParseFile event = new Events.ParseFile();
+        event.begin();
+        LoadResult snap = Snapshot.read(folder);
+        event.end();
+        if (event.shouldCommit()) {
+            Path file = folder.resolve(Snapshot.FILE_NAME);
+            event.file = file.toString();
+            event.bytes = snap == null ? 0 : file.toFile().length();
+            if (snap != null) event.records = snap.students().size() + snap.courses().size() + snap.grades().size();
+            event.commit();
+        }
+        return snap;
+    }
+
+    private static List<Student> loadStudents(Path file, Events.ParseFile event) {
         List<Student> list = new ArrayList<>();
         int lineNo = 0;
 
@@ -39,33 +151,17 @@ public class DataLoader {
             String line;
             while ((line = br.readLine()) != null) {
                 lineNo++;
-                line = line.trim();
-                if (line.isEmpty()) continue;
-
-                String[] p = line.split(", ", -1);
-                if (p.length != 5) throw new IllegalArgumentException("students.txt invalid line " + lineNo);
-
-                String id = p[0].trim();
-                String name = p[1].trim();
-                String surname = p[2].trim();
-                String email = p[3]; // can be empty
-                String levelStr = p[4].trim();
-
-                Validation.validateStudentId(id);
-                Validation.validateNonEmpty(name, "name");
-                Validation.validateNonEmpty(surname, "surname");
-                Validation.validateEmailOptional(email);
-                Level level = Validation.parseLevel(levelStr);
-
-                list.add(new Student(id, name, surname, email.trim(), level));
+                Student s = parseStudent(line, lineNo);
+                if (s != null) list.add(s);
             }
+            event.lines = lineNo;
         } catch (IOException e) {
             throw new IllegalArgumentException("cannot read students.txt");
         }
         return list;
     }
 
-    private static List<Course> loadCourses(Path file) {
+    private static List<Course> loadCourses(Path file, Events.ParseFile event) {
         List<Course> list = new ArrayList<>();
         int lineNo = 0;
 
@@ -73,60 +169,326 @@ public class DataLoader {
             String line;
             while ((line = br.readLine()) != null) {
                 lineNo++;
-                line = line.trim();
-                if (line.isEmpty()) continue;
+                Course c = parseCourse(line, lineNo);
+                if (c != null) list.add(c);
+            }
+            event.lines = lineNo;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot read courses.txt");
+        }
+        return list;
+    }
+
+    private static List<Evaluation> loadGrades(Path file, Events.ParseFile event) {
+        MappedGradeParser.Result res;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            res = MappedGradeParser.parse(ch, 0, ch.size());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot read grades.txt");
+        }
+        event.lines = res.lines();
+        if (res.failure() != null) throw res.failure();
+        return res.grades();
+    }
+
+    // ---------- LINE PARSERS ----------
+    // each returns null for a blank line and throws for an invalid one
+
+    static Student parseStudent(String line, int lineNo) {
+        line = line.trim();
+        if (line.isEmpty()) return null;
+
+        String[] p = line.split(", ", -1);
+        if (p.length != 5) throw new IllegalArgumentException("students.txt invalid line " + lineNo);
 
-                String[] p = line.split(", ", -1);
-                if (p.length != 3) throw new IllegalArgumentException("courses.txt invalid line " + lineNo);
+        String id = p[0].trim();
+        String name = p[1].trim();
+        String surname = p[2].trim();
+        String email = p[3]; // can be empty
+        String levelStr = p[4].trim();
 
-                String code = p[0].trim();
-                String title = p[1].trim();
-                String creditsStr = p[2].trim();
+        Validation.validateStudentId(id);
+        Validation.validateNonEmpty(name, "name");
+        Validation.validateNonEmpty(surname, "surname");
+        Validation.validateEmailOptional(email);
+        Level level = Validation.parseLevel(levelStr);
+
+        return new Student(id, name, surname, email.trim(), level);
+    }
+
+    static Course parseCourse(String line, int lineNo) {
+        line = line.trim();
+        if (line.isEmpty()) return null;
+
+        String[] p = line.split(", ", -1);
+        if (p.length != 3) throw new IllegalArgumentException("courses.txt invalid line " + lineNo);
+
+        String code = p[0].trim();
+        String title = p[1].trim();
+        String creditsStr = p[2].trim();
+
+        Validation.validateCourseCode(code);
+        Validation.validateNonEmpty(title, "title");
+        int credits = Validation.parseCredits(creditsStr);
+        Validation.computeCourseLevel(code);
+
+        return new Course(code, title, credits);
+    }
+
+    static Evaluation parseGrade(String line, int lineNo) {
+        line = line.trim();
+        if (line.isEmpty()) return null;
+
+        String[] p = line.split(", ", -1);
+        if (p.length != 4) throw new IllegalArgumentException("grades.txt invalid line " + lineNo);
+
+        String studentId = p[0].trim();
+        String courseCode = p[1].trim();
+        String semester = p[2].trim();
+        int grade = Validation.parseNumericGrade(p[3]);
+
+        Validation.validateStudentId(studentId);
+        Validation.validateCourseCode(courseCode);
+        Validation.validateSemester(semester);
+
+        return new Evaluation(studentId, courseCode, semester, grade);
+    }
 
-                Validation.validateCourseCode(code);
-                Validation.validateNonEmpty(title, "title");
-                int credits = Validation.parseCredits(creditsStr);
-                Validation.computeCourseLevel(code);
+    // ---------- WRITE-AHEAD LOG ----------
 
-                list.add(new Course(code, title, credits));
+    // one logged add: the record kind (DataWriter.STUDENT/COURSE/GRADE) and its data file line
+    record LogRecord(char kind, String line) {
+    }
+
+    record LogReplay(List<LogRecord> records, int lastSegment, long bytes) {
+    }
+
+    // Reads the folder's log segments in order. A record that is incomplete or fails its checksum, or a
+    // batch missing any of its records, ends that segment: the file is truncated there so later appends
+    // never follow a damaged line.
+    static LogReplay readLog(Path folder) {
+        List<Integer> segments = new ArrayList<>();
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(folder, DataWriter.SEGMENT_PREFIX + "*" + DataWriter.SEGMENT_SUFFIX)) {
+            for (Path p : dir) {
+                int n = DataWriter.segmentNumber(p.getFileName().toString());
+                if (n >= 0) segments.add(n);
             }
         } catch (IOException e) {
-            throw new IllegalArgumentException("cannot read courses.txt");
+            throw new IllegalArgumentException("cannot read write-ahead log");
         }
-        return list;
+        segments.sort(null);
+
+        List<LogRecord> records = new ArrayList<>();
+        long bytes = 0;
+        for (int n : segments) {
+            Path file = DataWriter.segment(folder, n);
+            try {
+                byte[] b = Files.readAllBytes(file);
+                int end = readSegment(b, records);
+                bytes += end;
+                if (end < b.length) {
+                    try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                        ch.truncate(end);
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalArgumentException("cannot read write-ahead log");
+            }
+        }
+        return new LogReplay(records, segments.isEmpty() ? 0 : segments.get(segments.size() - 1), bytes);
     }
 
-    private static List<Evaluation> loadGrades(Path file) {
-        List<Evaluation> list = new ArrayList<>();
-        int lineNo = 0;
+    // adds the segment's valid records and returns the offset where they end
+    private static int readSegment(byte[] b, List<LogRecord> out) {
+        int pos = 0;
+        List<LogRecord> batch = new ArrayList<>();
+        while (pos < b.length) {
+            int eol = lineEnd(b, pos);
+            LogRecord r = eol < 0 ? null : logRecord(b, pos, eol);
+            if (r == null) return pos;
+
+            if (r.kind() != DataWriter.BATCH) {
+                out.add(r);
+                pos = eol + 1;
+                continue;
+            }
+
+            int count = batchSize(r.line());
+            if (count < 0) return pos;
+            batch.clear();
+            int p = eol + 1;
+            while (batch.size() < count) {
+                int e = lineEnd(b, p);
+                LogRecord item = e < 0 ? null : logRecord(b, p, e);
+                if (item == null || item.kind() == DataWriter.BATCH) return pos;
+                batch.add(item);
+                p = e + 1;
+            }
+            out.addAll(batch);
+            pos = p;
+        }
+        return pos;
+    }
+
+    private static int batchSize(String s) {
+        if (s.isEmpty() || s.length() > 9) return -1;
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+
+    private static int lineEnd(byte[] b, int from) {
+        for (int i = from; i < b.length; i++) {
+            if (b[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    // the record on b[from, eol), or null when it is malformed or its checksum does not match
+    private static LogRecord logRecord(byte[] b, int from, int eol) {
+        if (eol - from < 11 || b[from + 1] != ' ' || b[from + 10] != ' ') return null;
+        char kind = (char) b[from];
+        if (kind != DataWriter.STUDENT && kind != DataWriter.COURSE && kind != DataWriter.GRADE && kind != DataWriter.BATCH) {
+            return null;
+        }
+        long crc = 0;
+        for (int i = from + 2; i < from + 10; i++) {
+            int d = Character.digit(b[i], 16);
+            if (d < 0) return null;
+            crc = (crc << 4) | d;
+        }
+        if (crc != DataWriter.checksum(b, from + 11, eol - from - 11)) return null;
+        return new LogRecord(kind, new String(b, from + 11, eol - from - 11, StandardCharsets.UTF_8));
+    }
+
+    // ---------- IMPORT FILES ----------
+
+    interface LineParser<T> {
+        T parse(String line, int lineNo);
+    }
 
+    // one non-blank line of an import file: the parsed record, or why it was rejected
+    record ImportRow<T>(int lineNo, T record, String error) {
+    }
+
+    // Parses every line of an import file with the loader's line parsers. Unlike load, a bad line does
+    // not stop the read; it becomes a rejected row.
+    static <T> List<ImportRow<T>> readImport(String fileName, String entity, LineParser<T> parser) {
+        Path file = Path.of(fileName);
+        if (!Files.isRegularFile(file)) throw new IllegalArgumentException("import file not found");
+
+        List<ImportRow<T>> rows = new ArrayList<>();
+        int lineNo = 0;
         try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
             String line;
             while ((line = br.readLine()) != null) {
                 lineNo++;
-                line = line.trim();
-                if (line.isEmpty()) continue;
-
-                String[] p = line.split(", ", -1);
-                if (p.length != 4) throw new IllegalArgumentException("grades.txt invalid line " + lineNo);
-
-                String studentId = p[0].trim();
-                String courseCode = p[1].trim();
-                String semester = p[2].trim();
-                int grade = Validation.parseNumericGrade(p[3]);
+                try {
+                    T record = parser.parse(line, lineNo);
+                    if (record != null) rows.add(new ImportRow<>(lineNo, record, null));
+                } catch (IllegalArgumentException e) {
+                    // the parsers name the data file they normally read; an import file has its own name
+                    String msg = e.getMessage() != null && e.getMessage().endsWith(" invalid line " + lineNo)
+                            ? "invalid number of fields for " + entity
+                            : e.getMessage();
+                    rows.add(new ImportRow<>(lineNo, null, msg));
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot read import file");
+        }
+        return rows;
+    }
 
-                Validation.validateStudentId(studentId);
-                Validation.validateCourseCode(courseCode);
-                Validation.validateSemester(semester);
+    // ---------- CHUNKED GRADES ----------
 
-                list.add(new Evaluation(studentId, courseCode, semester, grade));
+    private static List<Evaluation> loadGradesChunked(Path file, Events.ParseFile event) {
+        List<Callable<MappedGradeParser.Result>> tasks = new ArrayList<>();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            long start = 0;
+            while (start < size) {
+                long end = nextLineStart(ch, Math.min(start + CHUNK_SIZE, size), size);
+                long from = start;
+                tasks.add(() -> parseGradeChunk(file, from, end));
+                start = end;
             }
         } catch (IOException e) {
             throw new IllegalArgumentException("cannot read grades.txt");
         }
+
+        List<Future<MappedGradeParser.Result>> futures = ForkJoinPool.commonPool().invokeAll(tasks);
+        event.chunks = tasks.size();
+
+        List<MappedGradeParser.Result> chunks = new ArrayList<>(futures.size());
+        int total = 0;
+        for (Future<MappedGradeParser.Result> f : futures) {
+            MappedGradeParser.Result c = get(f);
+            chunks.add(c);
+            total += c.grades().size();
+        }
+
+        // the first failing chunk in file order decides the error, with its line number made global
+        List<Evaluation> list = new ArrayList<>(total);
+        int lineOffset = 0;
+        for (MappedGradeParser.Result c : chunks) {
+            if (c.failure() != null) {
+                if (c.failure().getMessage() != null && c.failure().getMessage().startsWith("grades.txt invalid line ")) {
+                    throw new IllegalArgumentException("grades.txt invalid line " + (lineOffset + c.failedLine()));
+                }
+                throw c.failure();
+            }
+            list.addAll(c.grades());
+            lineOffset += c.lines();
+            event.lines = lineOffset;
+        }
         return list;
     }
 
-    public record LoadResult(List<Student> students, List<Course> courses, List<Evaluation> grades, Path folder) {
+    private static MappedGradeParser.Result get(Future<MappedGradeParser.Result> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalArgumentException("cannot read grades.txt");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalArgumentException("cannot read grades.txt");
+        }
+    }
+
+    // first offset at or after pos that begins a line
+    private static long nextLineStart(FileChannel ch, long pos, long size) throws IOException {
+        if (pos >= size) return size;
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+        long p = pos - 1;
+        while (p < size) {
+            buf.clear();
+            int n = ch.read(buf, p);
+            if (n <= 0) return size;
+            for (int i = 0; i < n; i++) {
+                if (buf.get(i) == '\n') return p + i + 1;
+            }
+            p += n;
+        }
+        return size;
+    }
+
+    private static MappedGradeParser.Result parseGradeChunk(Path file, long from, long to) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return MappedGradeParser.parse(ch, from, to);
+        }
+    }
+
+    // fromSnapshot: the records come from a snapshot of an already validated registry
+    public record LoadResult(List<Student> students, List<Course> courses, List<Evaluation> grades, Path folder,
+                             boolean fromSnapshot) {
+        public LoadResult(List<Student> students, List<Course> courses, List<Evaluation> grades, Path folder) {
+            this(students, courses, grades, folder, false);
+        }
     }
 }
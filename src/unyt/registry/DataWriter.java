@@ -1,34 +1,384 @@
 package unyt.registry;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
 
+// Records added to a loaded folder go to a write-ahead log (registry-<n>.wal segments) rather than the
+// data files. Lines are collected in memory and written in group commits, one per pending-size threshold
+// or flush interval, through a FileChannel that stays open on the current segment. Every record carries a
+// CRC32 of its payload, and an import batch is framed by a header with its record count, so DataLoader
+// can drop a record or batch that a crash left half-written instead of rejecting the folder.
+//
+// Once the log grows past a threshold it is compacted in the background: the current segment is sealed,
+// the three data files are rewritten from fixed views of the registry through temp files and renames, the
+// binary snapshot is refreshed, and the sealed segments are deleted. A crash at any point of that leaves
+// data files plus a log whose replay skips records the data files already contain.
 public class DataWriter {
 
-    public static void appendStudent(Path folder, Student s) {
-        Path file = folder.resolve("students.txt");
-        String line = s.id() + ", " + s.name() + ", " + s.surname() + ", " + (s.email() == null ? "" : s.email()) + ", " + s.level().name() + "\n";
-        append(file, line);
+    public enum Durability {
+        NONE,  // lines are written once the pending size is reached, and on close
+        FLUSH, // also written every flush interval
+        FSYNC  // as FLUSH, and each commit is forced to the storage device
     }
 
-    public static void appendCourse(Path folder, Course c) {
-        Path file = folder.resolve("courses.txt");
-        String line = c.code() + ", " + c.title() + ", " + c.credits() + "\n";
-        append(file, line);
+    public record Config(Durability durability, long flushMillis, int flushBytes, long compactBytes) {
+        public static final Config DEFAULT = new Config(Durability.FLUSH, 200, 64 * 1024, 4L * 1024 * 1024);
+
+        // -Dregistry.durability=none|flush|fsync, -Dregistry.flushMillis=<ms>, -Dregistry.flushBytes=<bytes>,
+        // -Dregistry.compactBytes=<bytes>
+        public static Config fromSystemProperties() {
+            Durability d = switch (System.getProperty("registry.durability", "flush").toLowerCase()) {
+                case "none" -> Durability.NONE;
+                case "flush" -> Durability.FLUSH;
+                case "fsync" -> Durability.FSYNC;
+                default -> throw new IllegalArgumentException("invalid durability mode");
+            };
+            long millis = Long.getLong("registry.flushMillis", DEFAULT.flushMillis());
+            int bytes = Integer.getInteger("registry.flushBytes", DEFAULT.flushBytes());
+            long compact = Long.getLong("registry.compactBytes", DEFAULT.compactBytes());
+            if (millis < 0 || bytes < 0 || compact < 0) throw new IllegalArgumentException("invalid flush setting");
+            return new Config(d, millis, bytes, compact);
+        }
+    }
+
+    // ---------- LOG FORMAT ----------
+    // one line per record: <kind> <crc32 of payload, 8 hex digits> <payload>
+    // kinds: S, C, G with a data file line as payload; B with the number of records in the batch that follows
+
+    static final char STUDENT = 'S';
+    static final char COURSE = 'C';
+    static final char GRADE = 'G';
+    static final char BATCH = 'B';
+
+    static final String SEGMENT_PREFIX = "registry-";
+    static final String SEGMENT_SUFFIX = ".wal";
+
+    static Path segment(Path folder, int n) {
+        return folder.resolve(SEGMENT_PREFIX + n + SEGMENT_SUFFIX);
+    }
+
+    // segment number of a log file name, or -1 for any other file
+    static int segmentNumber(String fileName) {
+        if (!fileName.startsWith(SEGMENT_PREFIX) || !fileName.endsWith(SEGMENT_SUFFIX)) return -1;
+        String n = fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length());
+        if (n.isEmpty() || n.length() > 9) return -1;
+        for (int i = 0; i < n.length(); i++) {
+            if (n.charAt(i) < '0' || n.charAt(i) > '9') return -1;
+        }
+        return Integer.parseInt(n);
+    }
+
+    static long checksum(byte[] b, int off, int len) {
+        CRC32 crc = new CRC32();
+        crc.update(b, off, len);
+        return crc.getValue();
+    }
+
+    private static byte[] record(char kind, String payload) {
+        byte[] p = payload.getBytes(StandardCharsets.UTF_8);
+        String crc = Long.toHexString(checksum(p, 0, p.length) | 0x1_0000_0000L).substring(1); // zero padded
+        byte[] out = new byte[2 + 8 + 1 + p.length + 1];
+        out[0] = (byte) kind;
+        out[1] = ' ';
+        for (int i = 0; i < 8; i++) out[2 + i] = (byte) crc.charAt(i);
+        out[10] = ' ';
+        System.arraycopy(p, 0, out, 11, p.length);
+        out[out.length - 1] = '\n';
+        return out;
+    }
+
+    // ---------- WRITER ----------
+
+    private final Path folder;
+    private final Config config;
+    // both started on first use, so a registry that is loaded and only read owns no threads
+    private ScheduledExecutorService flusher;
+    private ExecutorService compactor;
+
+    private int segmentNo;
+    private FileChannel channel;
+    private long logBytes; // in all segments not compacted yet
+    private byte[] buf = new byte[1024];
+    private int size;
+
+    private Future<?> compaction;
+    // A failed commit or compaction is reported by the next append, flush or close. Nothing is written
+    // after a failed commit: the records still buffered include any import batch the registry dropped, and
+    // a later commit would put them in the log.
+    private volatile IllegalArgumentException failure;
+    private boolean closed;
+
+    // appends go to a new segment after the last one DataLoader replayed, which held replayedBytes in all
+    public DataWriter(Path folder, Config config, int lastSegment, long replayedBytes) {
+        this.folder = folder;
+        this.config = config;
+        this.segmentNo = lastSegment + 1;
+        this.logBytes = replayedBytes;
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    public void appendStudent(Student s) {
+        append(record(STUDENT, line(s)));
+    }
+
+    public void appendCourse(Course c) {
+        append(record(COURSE, line(c)));
+    }
+
+    public void appendGrade(Evaluation e) {
+        append(record(GRADE, line(e)));
+    }
+
+    // a whole import batch goes out in a single write, committed before returning; replay applies it
+    // completely or not at all
+    public synchronized void appendStudents(List<Student> list) {
+        checkOpen();
+        add(record(BATCH, Integer.toString(list.size())));
+        for (Student s : list) add(record(STUDENT, line(s)));
+        commit();
+    }
+
+    public synchronized void appendCourses(List<Course> list) {
+        checkOpen();
+        add(record(BATCH, Integer.toString(list.size())));
+        for (Course c : list) add(record(COURSE, line(c)));
+        commit();
+    }
+
+    public synchronized void appendGrades(List<Evaluation> list) {
+        checkOpen();
+        add(record(BATCH, Integer.toString(list.size())));
+        for (Evaluation e : list) add(record(GRADE, line(e)));
+        commit();
+    }
+
+    private static String line(Student s) {
+        return s.id() + ", " + s.name() + ", " + s.surname() + ", " + (s.email() == null ? "" : s.email()) + ", " + s.level().name();
+    }
+
+    private static String line(Course c) {
+        return c.code() + ", " + c.title() + ", " + c.credits();
+    }
+
+    private static String line(Evaluation e) {
+        return e.studentId() + ", " + e.courseCode() + ", " + e.semester() + ", " + e.numericGrade();
+    }
+
+    private synchronized void append(byte[] record) {
+        checkOpen();
+        add(record);
+        if (size >= config.flushBytes()) commit();
+    }
+
+    private void add(byte[] record) {
+        if (flusher == null && config.durability() != Durability.NONE && config.flushMillis() > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "data-writer"));
+            flusher.scheduleWithFixedDelay(this::backgroundFlush, config.flushMillis(), config.flushMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (size + record.length > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + record.length));
+        System.arraycopy(record, 0, buf, size, record.length);
+        size += record.length;
     }
 
-    public static void appendGrade(Path folder, Evaluation e) {
-        Path file = folder.resolve("grades.txt");
-        String line = e.studentId() + ", " + e.courseCode() + ", " + e.semester() + ", " + e.numericGrade() + "\n";
-        append(file, line);
+    // writes (and for FSYNC forces) everything appended so far
+    public synchronized void flush() {
+        checkOpen();
+        commit();
     }
 
-    private static void append(Path file, String line) {
+    public void close() {
+        ExecutorService c;
+        synchronized (this) {
+            if (closed) return;
+            if (flusher != null) flusher.shutdown();
+            c = compactor;
+            if (c != null) c.shutdown();
+        }
+        // a running compaction is allowed to finish so its temp files do not outlive the program
+        if (c != null) {
+            try {
+                c.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (closed) return;
+            try {
+                if (failure == null) {
+                    commit();
+                    force();
+                }
+            } finally {
+                closed = true;
+                closeChannel();
+            }
+            if (failure != null) throw failure;
+        }
+    }
+
+    private synchronized void backgroundFlush() {
+        if (closed || failure != null) return;
+        try {
+            commit();
+        } catch (IllegalArgumentException e) {
+            // recorded by commit
+        }
+    }
+
+    private void checkOpen() {
+        if (failure != null) throw failure;
+        if (closed) throw new IllegalArgumentException("data files are closed");
+    }
+
+    private void commit() {
+        if (size == 0) return;
         try {
-            Files.writeString(file, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            if (channel == null) {
+                channel = FileChannel.open(segment(folder, segmentNo), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            ByteBuffer bb = ByteBuffer.wrap(buf, 0, size);
+            while (bb.hasRemaining()) channel.write(bb);
+            if (config.durability() == Durability.FSYNC) channel.force(false);
         } catch (IOException ex) {
-            throw new IllegalArgumentException("cannot write to data file: " + file.getFileName());
+            failure = new IllegalArgumentException("cannot write to data file: " + segment(folder, segmentNo).getFileName());
+            throw failure;
+        }
+        logBytes += size;
+        size = 0;
+    }
+
+    // on close, whatever the durability: after a clean exit the log alone must hold every added record
+    private void force() {
+        if (channel == null) return;
+        try {
+            channel.force(false);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("cannot write to data file: " + segment(folder, segmentNo).getFileName());
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // everything was committed before closing
+        }
+        channel = null;
+    }
+
+    // ---------- COMPACTION ----------
+
+    // true when the log has outgrown the compaction threshold and no compaction is running yet
+    public synchronized boolean needsCompaction() {
+        return logBytes + size >= config.compactBytes() && (compaction == null || compaction.isDone());
+    }
+
+    // Folds every record appended so far into the data files; wait makes the call return only once the
+    // files are replaced. The collections are read later on the compactor thread, so they must hold every
+    // appended record and must not change meanwhile. Registry passes views of its append-only tables
+    // bounded by a horizon it takes under its write lock after publishing: records below the horizon are
+    // never changed or removed, so the views stay stable without a copy and later adds do not show through.
+    public void compact(Collection<Student> students, Collection<Course> courses, Collection<Evaluation> grades, boolean wait) {
+        Future<?> f;
+        synchronized (this) {
+            checkOpen();
+            if (compaction != null && !compaction.isDone()) await(compaction);
+            checkOpen();
+
+            commit();
+            closeChannel();
+            int sealed = segmentNo++;
+            logBytes = 0;
+
+            if (compactor == null) compactor = Executors.newSingleThreadExecutor(r -> daemon(r, "data-compactor"));
+            f = compactor.submit(() -> {
+                try {
+                    rewrite(students, courses, grades, sealed);
+                } catch (IllegalArgumentException e) {
+                    failure = e;
+                } catch (RuntimeException e) {
+                    failure = new IllegalArgumentException("cannot compact data files");
+                }
+            });
+            compaction = f;
+        }
+        if (wait) {
+            await(f);
+            checkOpen();
+        }
+    }
+
+    private static void await(Future<?> f) {
+        try {
+            f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // failures are recorded by the task itself
+        }
+    }
+
+    private void rewrite(Collection<Student> students, Collection<Course> courses, Collection<Evaluation> grades, int sealed) {
+        replace("students.txt", students, DataWriter::line);
+        replace("courses.txt", courses, DataWriter::line);
+        replace("grades.txt", grades, DataWriter::line);
+
+        if (Snapshot.enabled()) Snapshot.write(folder, students, courses, grades);
+
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(folder, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path p : dir) {
+                int n = segmentNumber(p.getFileName().toString());
+                if (n >= 0 && n <= sealed) Files.deleteIfExists(p);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot remove compacted log segments");
+        }
+    }
+
+    private interface LineFormat<T> {
+        String line(T record);
+    }
+
+    // the new file is written and forced under a temp name, then renamed over the old one
+    private <T> void replace(String fileName, Collection<T> records, LineFormat<T> format) {
+        Path target = folder.resolve(fileName);
+        Path tmp = folder.resolve(fileName + ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                Writer out = new BufferedWriter(Channels.newWriter(ch, StandardCharsets.UTF_8), 1 << 16);
+                for (T r : records) {
+                    out.write(format.line(r));
+                    out.write('\n');
+                }
+                out.flush();
+                ch.force(true);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot write to data file: " + fileName);
         }
     }
 }
@@ -0,0 +1,112 @@
+package unyt.registry;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Java Flight Recorder events for loads and report files, listed under "Student Registry" in JDK Mission
+// Control. They cost next to nothing unless a recording is running, e.g. one started with
+// java -XX:StartFlightRecording=filename=load.jfr -jar studentregistry.jar
+final class Events {
+    private Events() {}
+
+    @Name("unyt.registry.Load")
+    @Label("Load")
+    @Category({"Student Registry", "Load"})
+    @StackTrace(false)
+    @Description("A whole load command, from reading the folder to the published registry")
+    static final class Load extends Event {
+        @Label("Folder")
+        String folder;
+        @Label("From Snapshot")
+        boolean fromSnapshot;
+        @Label("Students")
+        long students;
+        @Label("Courses")
+        long courses;
+        @Label("Grades")
+        long grades;
+        @Label("Failure")
+        String failure;
+    }
+
+    @Name("unyt.registry.ParseFile")
+    @Label("Parse Data File")
+    @Category({"Student Registry", "Load"})
+    @StackTrace(false)
+    @Description("Reading, parsing and validating one data file; a rejected line ends it with a failure")
+    static final class ParseFile extends Event {
+        @Label("File")
+        String file;
+        @Label("Size")
+        @DataAmount(DataAmount.BYTES)
+        long bytes;
+        @Label("Lines")
+        long lines;
+        @Label("Records")
+        long records;
+        @Label("Chunks")
+        @Description("Parts parsed in parallel, 1 for a sequential parse")
+        int chunks = 1;
+        @Label("Failure")
+        String failure;
+    }
+
+    @Name("unyt.registry.LoadPhase")
+    @Label("Load Phase")
+    @Category({"Student Registry", "Load"})
+    @StackTrace(false)
+    @Description("One step of building the registry from parsed records: students, courses, grades, snapshot, log or ranking")
+    static final class LoadPhase extends Event {
+        @Label("Phase")
+        String phase;
+        @Label("Records")
+        long records;
+        @Label("Integrity Checks")
+        @Description("Part of the duration spent checking references, duplicates and levels, grades only")
+        @Timespan(Timespan.NANOSECONDS)
+        long integrityChecks;
+
+        static LoadPhase start(String phase) {
+            LoadPhase e = new LoadPhase();
+            e.phase = phase;
+            e.begin();
+            return e;
+        }
+
+        void finish(long records) {
+            end();
+            if (shouldCommit()) {
+                this.records = records;
+                commit();
+            }
+        }
+    }
+
+    @Name("unyt.registry.WriteReport")
+    @Label("Write Report")
+    @Category({"Student Registry", "Report"})
+    @StackTrace(false)
+    @Description("Writing one report file in the background")
+    static final class WriteReport extends Event {
+        @Label("Report")
+        String report;
+        @Label("Format")
+        String format;
+        @Label("File")
+        String file;
+        @Label("Rows")
+        @Description("Students or courses of a top-N report, course lines of a transcript, students of a combined export")
+        long rows;
+        @Label("Size")
+        @DataAmount(DataAmount.BYTES)
+        long bytes;
+        @Label("Failure")
+        String failure;
+    }
+}
@@ -1,26 +1,31 @@
 package unyt.registry;
 
-import java.util.Objects;
-
-public class GradeKey {
+// Immutable (student, course) pair; the hash is computed once since keys are mostly used in hash sets.
+public final class GradeKey {
     private final String studentId;
     private final String courseCode;
+    private final int hash;
 
     public GradeKey(String studentId, String courseCode) {
         this.studentId = studentId;
         this.courseCode = courseCode;
+        this.hash = 31 * studentId.hashCode() + courseCode.hashCode();
     }
 
+    public String studentId() { return studentId; }
+    public String courseCode() { return courseCode; }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof GradeKey other)) return false;
-        return Objects.equals(studentId, other.studentId)
-                && Objects.equals(courseCode, other.courseCode);
+        return hash == other.hash
+                && studentId.equals(other.studentId)
+                && courseCode.equals(other.courseCode);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(studentId, courseCode);
+        return hash;
     }
 }
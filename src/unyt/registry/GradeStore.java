@@ -0,0 +1,318 @@
+package unyt.registry;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// All grades of a registry in parallel primitive columns, one row per grade in insertion order. Student
+// IDs, course codes and semesters are interned to ordinals, a (student, course) pair is found through an
+// open-addressing table keyed by the two ordinals packed into a long, and the rows of every student,
+// course and semester are kept as int lists. Evaluation objects are only created when a row is read
+// through get() or one of the list views.
+//
+// Rows are only ever appended, by one writer at a time. Readers pass a horizon (a row count read from
+// visible() earlier) and only see the rows below it, without locking: every array is replaced, never
+// shrunk, through a volatile field, and the rows written before publish() are visible to any thread that
+// reads visible() afterwards.
+final class GradeStore {
+
+    private final Dimension students = new Dimension();
+    private final Dimension courses = new Dimension();
+    private final Dimension semesters = new Dimension();
+
+    private volatile int[] studentCol = new int[16];
+    private volatile int[] courseCol = new int[16];
+    private volatile short[] semesterCol = new short[16];
+    private volatile byte[] gradeCol = new byte[16];
+    private int size; // writer only
+    private volatile int visible;
+
+    // (student << 32 | course) -> row + 1, 0 marks a free slot
+    private volatile Table table = new Table(32);
+
+    // rows added so far, published or not; for the writer
+    int size() {
+        return size;
+    }
+
+    void publish() {
+        visible = size;
+    }
+
+    int visible() {
+        return visible;
+    }
+
+    // only before the store is shared with readers, e.g. at the start of a load
+    void clear() {
+        students.clear();
+        courses.clear();
+        semesters.clear();
+        size = 0;
+        visible = 0;
+        table = new Table(32);
+    }
+
+    // ---------- WRITE ----------
+
+    // the caller has checked that the (student, course) pair is not present yet
+    void add(Evaluation e) {
+        int s = students.ordinal(e.studentId());
+        int c = courses.ordinal(e.courseCode());
+        int m = semesters.ordinal(e.semester());
+        if (m > Short.MAX_VALUE) throw new IllegalArgumentException("too many semesters");
+
+        if (size == studentCol.length) {
+            int cap = size * 2;
+            studentCol = Arrays.copyOf(studentCol, cap);
+            courseCol = Arrays.copyOf(courseCol, cap);
+            semesterCol = Arrays.copyOf(semesterCol, cap);
+            gradeCol = Arrays.copyOf(gradeCol, cap);
+        }
+        int row = size;
+        studentCol[row] = s;
+        courseCol[row] = c;
+        semesterCol[row] = (short) m;
+        gradeCol[row] = (byte) e.numericGrade();
+
+        students.rows(s).add(row);
+        courses.rows(c).add(row);
+        semesters.rows(m).add(row);
+
+        size++;
+        Table t = table;
+        if (size * 2 > t.keys.length) table = rehash(t.keys.length * 2); // holds every row, this one included
+        else t.insert(key(s, c), row);
+    }
+
+    // The rows of a snapshot, which was written from a registry, so no (student, course) pair is in it twice
+    // or already here. Each distinct string is interned once and the hash index is filled once at the end.
+    void addAll(Snapshot.Grades g) {
+        int n = g.size();
+        int[] studentOrd = unresolved(g.table.length);
+        int[] courseOrd = unresolved(g.table.length);
+        int[] semesterOrd = unresolved(g.table.length);
+
+        if (size + n > studentCol.length) {
+            int cap = Math.max(size + n, size * 2);
+            studentCol = Arrays.copyOf(studentCol, cap);
+            courseCol = Arrays.copyOf(courseCol, cap);
+            semesterCol = Arrays.copyOf(semesterCol, cap);
+            gradeCol = Arrays.copyOf(gradeCol, cap);
+        }
+        int[] sc = studentCol;
+        int[] cc = courseCol;
+        short[] mc = semesterCol;
+        byte[] gc = gradeCol;
+        int first = size;
+        for (int i = 0; i < n; i++) {
+            int s = ordinal(students, g.table, g.student[i], studentOrd);
+            int c = ordinal(courses, g.table, g.course[i], courseOrd);
+            int m = ordinal(semesters, g.table, g.semester[i], semesterOrd);
+            if (m > Short.MAX_VALUE) throw new IllegalArgumentException("too many semesters");
+
+            int row = first + i;
+            sc[row] = s;
+            cc[row] = c;
+            mc[row] = (short) m;
+            gc[row] = g.grade[i];
+            students.rows(s).add(row);
+            courses.rows(c).add(row);
+            semesters.rows(m).add(row);
+        }
+        size = first + n;
+
+        Table t = table;
+        int cap = t.keys.length;
+        while (size * 2 > cap) cap *= 2;
+        if (cap != t.keys.length) {
+            table = rehash(cap);
+        } else {
+            for (int row = first; row < size; row++) t.insert(key(sc[row], cc[row]), row);
+        }
+    }
+
+    private static int[] unresolved(int n) {
+        int[] a = new int[n];
+        Arrays.fill(a, -1);
+        return a;
+    }
+
+    // ordinal of table[ref] in d, resolved once per string
+    private static int ordinal(Dimension d, String[] table, int ref, int[] resolved) {
+        int o = resolved[ref];
+        if (o < 0) {
+            o = d.ordinal(table[ref]);
+            resolved[ref] = o;
+        }
+        return o;
+    }
+
+    // ---------- LOOKUP ----------
+
+    // for the writer: also sees rows that are not published yet
+    boolean contains(String studentId, String courseCode) {
+        return find(studentId, courseCode, Integer.MAX_VALUE) >= 0;
+    }
+
+    // row of the grade if it is below horizon, or -1
+    int find(String studentId, String courseCode, int horizon) {
+        int s = students.find(studentId);
+        if (s < 0) return -1;
+        int c = courses.find(courseCode);
+        if (c < 0) return -1;
+
+        long k = key(s, c);
+        Table t = table;
+        int mask = t.keys.length - 1;
+        for (int i = mix(k) & mask; t.slots[i] != 0; i = (i + 1) & mask) {
+            if (t.keys[i] == k) {
+                int row = t.slots[i] - 1;
+                return row < horizon ? row : -1;
+            }
+        }
+        return -1;
+    }
+
+    Evaluation get(int row) {
+        return new Evaluation(students.value(studentCol[row]), courses.value(courseCol[row]),
+                semesters.value(semesterCol[row]), gradeCol[row]);
+    }
+
+    int countForCourse(String courseCode, int horizon) {
+        return count(courses, courseCode, horizon);
+    }
+
+    int countForStudent(String studentId, int horizon) {
+        return count(students, studentId, horizon);
+    }
+
+    private static int count(Dimension d, String value, int horizon) {
+        int o = d.find(value);
+        return o < 0 ? 0 : d.rows(o).countBelow(horizon);
+    }
+
+    // ---------- VIEWS ----------
+
+    List<Evaluation> all(int horizon) {
+        return new AbstractList<>() {
+            @Override
+            public Evaluation get(int i) {
+                Objects.checkIndex(i, horizon);
+                return GradeStore.this.get(i);
+            }
+
+            @Override
+            public int size() {
+                return horizon;
+            }
+        };
+    }
+
+    List<Evaluation> ofStudent(String studentId, int horizon) {
+        return rows(students, studentId, horizon);
+    }
+
+    List<Evaluation> ofCourse(String courseCode, int horizon) {
+        return rows(courses, courseCode, horizon);
+    }
+
+    List<Evaluation> ofSemester(String semester, int horizon) {
+        return rows(semesters, semester, horizon);
+    }
+
+    private List<Evaluation> rows(Dimension d, String value, int horizon) {
+        int o = d.find(value);
+        if (o < 0) return List.of();
+        return d.rows(o).view(horizon, this::get);
+    }
+
+    // ---------- HASH INDEX ----------
+
+    private static long key(int student, int course) {
+        return ((long) student << 32) | (course & 0xFFFFFFFFL);
+    }
+
+    private static int mix(long k) {
+        long h = k * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // a new table is filled completely before it replaces the old one, which readers may still be using
+    private Table rehash(int capacity) {
+        Table t = new Table(capacity);
+        for (int row = 0; row < size; row++) {
+            t.insert(key(studentCol[row], courseCol[row]), row);
+        }
+        return t;
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final int[] slots;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            slots = new int[capacity];
+        }
+
+        void insert(long k, int row) {
+            int mask = keys.length - 1;
+            int i = mix(k) & mask;
+            while (slots[i] != 0) i = (i + 1) & mask;
+            keys[i] = k;
+            slots[i] = row + 1;
+        }
+    }
+
+    // ---------- HELPERS ----------
+
+    // Distinct values of one column with their ordinals and the rows holding each. A new value's entries
+    // are in place before the index maps it, so a reader that finds an ordinal can always resolve it.
+    private static final class Dimension {
+        private final ConcurrentHashMap<String, Integer> index = new ConcurrentHashMap<>();
+        private volatile String[] values = new String[16];
+        private volatile IntLog[] rows = new IntLog[16];
+        private int count; // writer only
+
+        int ordinal(String v) {
+            Integer o = index.get(v);
+            if (o != null) return o;
+
+            String[] vs = values;
+            IntLog[] rs = rows;
+            if (count == vs.length) {
+                vs = Arrays.copyOf(vs, count * 2);
+                rs = Arrays.copyOf(rs, count * 2);
+            }
+            vs[count] = v;
+            rs[count] = new IntLog();
+            values = vs;
+            rows = rs;
+            index.put(v, count);
+            return count++;
+        }
+
+        int find(String v) {
+            Integer o = index.get(v);
+            return o == null ? -1 : o;
+        }
+
+        String value(int o) {
+            return values[o];
+        }
+
+        IntLog rows(int o) {
+            return rows[o];
+        }
+
+        void clear() {
+            index.clear();
+            values = new String[16];
+            rows = new IntLog[16];
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package unyt.registry;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+// Append-only list of increasing ints (row or record positions) written by one thread at a time and read
+// by any number of others without locking. A reader reads the size before the array, so the array it
+// sees always holds that many values; a reader bounded by a horizon uses countBelow() to stop before
+// values that were added after it.
+final class IntLog {
+    private volatile int[] data = new int[4];
+    private volatile int size;
+
+    void add(int v) {
+        int n = size;
+        int[] d = data;
+        if (n == d.length) {
+            d = Arrays.copyOf(d, n * 2);
+            data = d;
+        }
+        d[n] = v;
+        size = n + 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // last value added, or -1
+    int last() {
+        int n = size;
+        return n == 0 ? -1 : data[n - 1];
+    }
+
+    // number of values smaller than horizon
+    int countBelow(int horizon) {
+        int n = size;
+        int[] d = data;
+        int lo = 0, hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (d[mid] < horizon) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // the values smaller than horizon, each mapped through resolve
+    <T> List<T> view(int horizon, IntFunction<T> resolve) {
+        int n = countBelow(horizon);
+        int[] d = data;
+        return new AbstractList<>() {
+            @Override
+            public T get(int i) {
+                Objects.checkIndex(i, n);
+                return resolve.apply(d[i]);
+            }
+
+            @Override
+            public int size() {
+                return n;
+            }
+        };
+    }
+}
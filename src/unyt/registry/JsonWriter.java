@@ -1,95 +1,153 @@
 package unyt.registry;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.*;
+import java.io.Writer;
 import java.util.List;
-import java.util.Locale;
 
-public class JsonWriter {
+public class JsonWriter implements ReportWriter {
 
-    public static void writeTopStudents(Path out, List<Registry.StudentRow> rows) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("[\n");
+    public static final JsonWriter INSTANCE = new JsonWriter();
+
+    @Override
+    public void topStudents(Writer out, List<Registry.StudentRow> rows) throws IOException {
+        out.write("[\n");
         for (int i = 0; i < rows.size(); i++) {
             Registry.StudentRow r = rows.get(i);
-            sb.append("  {\n");
-            sb.append("    \"id\": ").append(q(r.student().id())).append(",\n");
-            sb.append("    \"name\": ").append(q(r.student().name())).append(",\n");
-            sb.append("    \"surname\": ").append(q(r.student().surname())).append(",\n");
-            sb.append("    \"level\": ").append(q(r.student().level().label())).append(",\n");
-            sb.append("    \"totalCredits\": ").append(r.totalCredits()).append(",\n");
-            sb.append("    \"gpa\": ").append(String.format(Locale.US, "%.2f", r.gpa())).append("\n");
-            sb.append("  }").append(i == rows.size() - 1 ? "\n" : ",\n");
+            out.write("  {\n");
+            out.write("    \"id\": ");
+            q(out, r.student().id());
+            out.write(",\n    \"name\": ");
+            q(out, r.student().name());
+            out.write(",\n    \"surname\": ");
+            q(out, r.student().surname());
+            out.write(",\n    \"level\": ");
+            q(out, r.student().level().label());
+            out.write(",\n    \"totalCredits\": ");
+            out.write(Integer.toString(r.totalCredits()));
+            out.write(",\n    \"gpa\": ");
+            TwoDecimals.appendTo(out, r.gpa());
+            out.write("\n");
+            out.write(i == rows.size() - 1 ? "  }\n" : "  },\n");
         }
-        sb.append("]\n");
-        write(out, sb.toString());
+        out.write("]\n");
     }
 
-    public static void writeTopCourses(Path out, List<Registry.CourseRow> rows) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("[\n");
+    @Override
+    public void topCourses(Writer out, List<Registry.CourseRow> rows) throws IOException {
+        out.write("[\n");
         for (int i = 0; i < rows.size(); i++) {
             Registry.CourseRow r = rows.get(i);
-            sb.append("  {\n");
-            sb.append("    \"code\": ").append(q(r.course().code())).append(",\n");
-            sb.append("    \"title\": ").append(q(r.course().title())).append(",\n");
-            sb.append("    \"credits\": ").append(r.course().credits()).append(",\n");
-            sb.append("    \"level\": ").append(q(r.level().label())).append(",\n");
-            sb.append("    \"gradeCount\": ").append(r.gradeCount()).append("\n");
-            sb.append("  }").append(i == rows.size() - 1 ? "\n" : ",\n");
+            out.write("  {\n");
+            out.write("    \"code\": ");
+            q(out, r.course().code());
+            out.write(",\n    \"title\": ");
+            q(out, r.course().title());
+            out.write(",\n    \"credits\": ");
+            out.write(Integer.toString(r.course().credits()));
+            out.write(",\n    \"level\": ");
+            q(out, r.level().label());
+            out.write(",\n    \"gradeCount\": ");
+            out.write(Integer.toString(r.gradeCount()));
+            out.write("\n");
+            out.write(i == rows.size() - 1 ? "  }\n" : "  },\n");
         }
-        sb.append("]\n");
-        write(out, sb.toString());
+        out.write("]\n");
+    }
+
+    @Override
+    public void transcript(Writer out, Registry.Transcript t) throws IOException {
+        transcriptObject(out, t, "");
+        out.write("\n");
+    }
+
+    @Override
+    public void transcriptsStart(Writer out) throws IOException {
+        out.write("[\n");
     }
 
-    public static void writeTranscript(Path out, Registry.Transcript t) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("{\n");
-        sb.append("  \"student\": {\n");
-        sb.append("    \"id\": ").append(q(t.student().id())).append(",\n");
-        sb.append("    \"name\": ").append(q(t.student().name())).append(",\n");
-        sb.append("    \"surname\": ").append(q(t.student().surname())).append(",\n");
-        sb.append("    \"level\": ").append(q(t.student().level().label())).append("\n");
-        sb.append("  },\n");
-        sb.append("  \"semesters\": [\n");
+    @Override
+    public void transcriptsEntry(Writer out, Registry.Transcript t, boolean first) throws IOException {
+        if (!first) out.write(",\n");
+        transcriptObject(out, t, "  ");
+    }
+
+    @Override
+    public void transcriptsEnd(Writer out, int count) throws IOException {
+        out.write(count == 0 ? "]\n" : "\n]\n");
+    }
+
+    // the transcript object without its final newline, every line prefixed with pad
+    private static void transcriptObject(Writer out, Registry.Transcript t, String pad) throws IOException {
+        line(out, pad, "{\n");
+        line(out, pad, "  \"student\": {\n");
+        line(out, pad, "    \"id\": ");
+        q(out, t.student().id());
+        out.write(",\n");
+        line(out, pad, "    \"name\": ");
+        q(out, t.student().name());
+        out.write(",\n");
+        line(out, pad, "    \"surname\": ");
+        q(out, t.student().surname());
+        out.write(",\n");
+        line(out, pad, "    \"level\": ");
+        q(out, t.student().level().label());
+        out.write("\n");
+        line(out, pad, "  },\n");
+        line(out, pad, "  \"semesters\": [\n");
 
         for (int i = 0; i < t.semesters().size(); i++) {
             Registry.TranscriptSemester sem = t.semesters().get(i);
-            sb.append("    {\n");
-            sb.append("      \"semester\": ").append(q(sem.semester())).append(",\n");
-            sb.append("      \"records\": [\n");
+            line(out, pad, "    {\n");
+            line(out, pad, "      \"semester\": ");
+            q(out, sem.semester());
+            out.write(",\n");
+            line(out, pad, "      \"records\": [\n");
             for (int j = 0; j < sem.lines().size(); j++) {
                 Registry.TranscriptLine line = sem.lines().get(j);
-                sb.append("        {\n");
-                sb.append("          \"courseCode\": ").append(q(line.courseCode())).append(",\n");
-                sb.append("          \"courseTitle\": ").append(q(line.courseTitle())).append(",\n");
-                sb.append("          \"credits\": ").append(line.credits()).append(",\n");
-                sb.append("          \"numericGrade\": ").append(line.numericGrade()).append(",\n");
-                sb.append("          \"letterGrade\": ").append(q(line.letterGrade())).append(",\n");
-                sb.append("          \"gradePoints\": ").append(String.format(Locale.US, "%.2f", line.gradePoints())).append("\n");
-                sb.append("        }").append(j == sem.lines().size() - 1 ? "\n" : ",\n");
+                line(out, pad, "        {\n");
+                line(out, pad, "          \"courseCode\": ");
+                q(out, line.courseCode());
+                out.write(",\n");
+                line(out, pad, "          \"courseTitle\": ");
+                q(out, line.courseTitle());
+                out.write(",\n");
+                line(out, pad, "          \"credits\": ");
+                out.write(Integer.toString(line.credits()));
+                out.write(",\n");
+                line(out, pad, "          \"numericGrade\": ");
+                out.write(Integer.toString(line.numericGrade()));
+                out.write(",\n");
+                line(out, pad, "          \"letterGrade\": ");
+                q(out, line.letterGrade());
+                out.write(",\n");
+                line(out, pad, "          \"gradePoints\": ");
+                TwoDecimals.appendTo(out, line.gradePoints());
+                out.write("\n");
+                line(out, pad, j == sem.lines().size() - 1 ? "        }\n" : "        },\n");
             }
-            sb.append("      ]\n");
-            sb.append("    }").append(i == t.semesters().size() - 1 ? "\n" : ",\n");
+            line(out, pad, "      ]\n");
+            line(out, pad, i == t.semesters().size() - 1 ? "    }\n" : "    },\n");
         }
 
-        sb.append("  ]\n");
-        sb.append("}\n");
-        write(out, sb.toString());
+        line(out, pad, "  ]\n");
+        line(out, pad, "}");
     }
 
-    private static String q(String s) {
-        if (s == null) return "\"\"";
-        String v = s.replace("\\", "\\\\").replace("\"", "\\\"");
-        return "\"" + v + "\"";
+    private static void line(Writer out, String pad, String text) throws IOException {
+        out.write(pad);
+        out.write(text);
     }
 
-    private static void write(Path out, String content) {
-        try {
-            Files.writeString(out, content, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-        } catch (IOException e) {
-            throw new IllegalArgumentException("cannot write report file");
+    // also used by Registry for query results
+    static void q(Appendable out, String s) throws IOException {
+        out.append('"');
+        if (s != null) {
+            for (int i = 0; i < s.length(); i++) {
+                char ch = s.charAt(i);
+                if (ch == '\\' || ch == '"') out.append('\\');
+                out.append(ch);
+            }
         }
+        out.append('"');
     }
 }
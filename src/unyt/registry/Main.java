@@ -1,25 +1,62 @@
 package unyt.registry;
 
+import java.io.*;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class Main {
     public static void main(String[] args) {
-        Registry registry = new Registry();
-        ReportService reportService = new ReportService(registry);
+        if (args.length > 0 && args[0].equals("--batch")) {
+            runBatch(args);
+            return;
+        }
 
+        Session session = new Session();
         Scanner sc = new Scanner(System.in);
 
         while (true) {
             System.out.print("? ");
-            String line = sc.nextLine();
-            if (line == null) break;
-            line = line.trim();
+            if (!sc.hasNextLine()) {
+                // end of input: as quit, without the message
+                session.quit();
+                return;
+            }
+            String line = sc.nextLine().trim();
             if (line.isEmpty()) continue;
+            if (!session.execute(line, System.out)) return;
+        }
+    }
 
+    // The state commands share, and the command dispatch used by both the REPL and batch mode.
+    private static final class Session {
+        final Registry registry = new Registry();
+        final ReportService reportService = new ReportService(registry);
+        RegistryServer server;
+
+        Session() {
+            // added records are still committed if stdin ends or the process is interrupted without 'quit'
+            Runtime.getRuntime().addShutdownHook(new Thread(registry::close));
+        }
+
+        // runs one non-empty command line; false once the program should end. find, query and stats print
+        // to out, the other commands to System.out. Every command is timed into the registry's metrics.
+        boolean execute(String line, PrintStream out) {
             String[] first = line.split("\\s+", 2);
             String cmd = first[0];
             String rest = first.length > 1 ? first[1].trim() : "";
 
+            long start = System.nanoTime();
+            boolean failed = false;
             try {
                 switch (cmd) {
                     case "load" -> {
@@ -29,27 +66,159 @@ public class Main {
                             registry.load(rest);
                         }
                     }
-                    case "find" -> handleFind(registry, rest);
-                    case "query" -> handleQuery(registry, rest);
+                    case "find" -> handleFind(registry, rest, out);
+                    case "query" -> handleQuery(registry, rest, out);
                     case "add" -> handleAdd(registry, rest);
+                    case "import" -> handleImport(registry, rest);
+                    case "snapshot" -> registry.writeSnapshot();
                     case "report" -> handleReport(reportService, rest);
+                    case "serve" -> server = handleServe(registry, server, rest);
+                    case "stats" -> handleStats(registry.metrics(), rest, out);
                     case "quit" -> {
+                        quit();
                         System.out.println("The program is terminated.");
-                        return;
+                        return false;
                     }
                     default -> System.out.println("error: unknown command");
                 }
             } catch (IllegalArgumentException ex) {
-                System.out.println("error: " + ex.getMessage());
+                failed = true;
+                out.println("error: " + ex.getMessage());
             } catch (Exception ex) {
-                System.out.println("error: unexpected failure: " + ex.getMessage());
+                failed = true;
+                out.println("error: unexpected failure: " + ex.getMessage());
+            } finally {
+                registry.metrics().record(metricName(cmd, rest), System.nanoTime() - start, failed);
+            }
+            return true;
+        }
+
+        void quit() {
+            if (server != null) server.stop();
+            reportService.shutdown();
+            registry.close();
+        }
+    }
+
+    // ---------- BATCH ----------
+    // java ... Main --batch <file|-> [--parallel]
+    // Commands are read from the file (or stdin for -) without prompts and all output goes through one
+    // buffered stream, flushed at the end. With --parallel, runs of consecutive find and query commands
+    // are executed on a thread pool into buffers of their own and printed in input order; any other
+    // command waits for them first, so the output is the same as a sequential run.
+
+    private static final int BATCH_WINDOW = 256;
+
+    private static void runBatch(String[] args) {
+        if (args.length < 2) {
+            System.err.println("usage: --batch <file|-> [--parallel]");
+            System.exit(2);
+        }
+        boolean parallel = args.length > 2 && args[2].equals("--parallel");
+
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false);
+        System.setOut(out);
+        ExecutorService pool = parallel ? Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()) : null;
+        Session session = new Session();
+        try (BufferedReader in = args[1].equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, Charset.defaultCharset()), 1 << 16)
+                : Files.newBufferedReader(Path.of(args[1]), Charset.defaultCharset())) {
+            List<Future<byte[]>> pending = new ArrayList<>();
+            boolean running = true;
+            String line;
+            while (running && (line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+
+                if (pool != null && (line.startsWith("find ") || line.startsWith("query "))) {
+                    String command = line;
+                    pending.add(pool.submit(() -> captured(session, command)));
+                    if (pending.size() >= BATCH_WINDOW) drain(pending, out);
+                    continue;
+                }
+                drain(pending, out);
+                running = session.execute(line, out);
             }
+            drain(pending, out);
+            if (running) session.quit();
+        } catch (IOException e) {
+            out.println("error: cannot read batch file");
+        } finally {
+            if (pool != null) pool.shutdown();
+            out.flush();
         }
     }
 
-    private static void handleFind(Registry registry, String rest) {
+    private static byte[] captured(Session session, String command) {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        PrintStream ps = new PrintStream(buf, false, Charset.defaultCharset());
+        session.execute(command, ps);
+        ps.flush();
+        return buf.toByteArray();
+    }
+
+    private static void drain(List<Future<byte[]>> pending, PrintStream out) {
+        for (Future<byte[]> f : pending) {
+            try {
+                out.write(f.get());
+            } catch (ExecutionException | IOException e) {
+                out.println("error: unexpected failure: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        pending.clear();
+    }
+
+    // ---------- METRICS ----------
+
+    private static final List<String> ENTITIES = List.of("student", "course", "grade");
+    private static final List<String> REPORT_TYPES = List.of("topStudents", "bestStudents", "topCourses", "transcript", "transcripts");
+    private static final List<String> FORMATS = List.of("csv", "json", "xml");
+
+    // e.g. find.student, query.grade, report.topStudents.csv; anything unexpected maps to a fixed name so
+    // mistyped commands cannot create new series
+    private static String metricName(String cmd, String rest) {
+        String[] p = rest.split("\\s+");
+        return switch (cmd) {
+            case "find", "query", "add", "import" -> cmd + "." + (ENTITIES.contains(p[0]) ? p[0] : "other");
+            case "report" -> {
+                if (p[0].equals("status")) yield "report.status";
+                if (!REPORT_TYPES.contains(p[0])) yield "report.other";
+                String format = p.length < 3 ? "" : p[0].equals("transcripts") ? p[2] : p[2].substring(p[2].lastIndexOf('.') + 1);
+                yield "report." + p[0] + "." + (FORMATS.contains(format.toLowerCase()) ? format.toLowerCase() : "other");
+            }
+            case "load", "snapshot", "serve", "stats", "quit" -> cmd;
+            default -> "unknown";
+        };
+    }
+
+    // stats | stats json <file> | stats prometheus <file>
+    private static void handleStats(Metrics metrics, String rest, PrintStream out) throws IOException {
         if (rest.isEmpty()) {
-            System.out.println("error: missing entity");
+            metrics.appendText(out);
+            return;
+        }
+        String[] p = rest.split("\\s+", 2);
+        if (p.length < 2) {
+            out.println("error: missing file name");
+            return;
+        }
+        switch (p[0]) {
+            case "json" -> ReportWriter.toFile(Path.of(p[1]), metrics::writeJson);
+            case "prometheus" -> ReportWriter.toFile(Path.of(p[1]), metrics::writePrometheus);
+            default -> {
+                out.println("error: unsupported stats format");
+                return;
+            }
+        }
+        out.println("stats written");
+    }
+
+    private static void handleFind(Registry registry, String rest, PrintStream out) {
+        if (rest.isEmpty()) {
+            out.println("error: missing entity");
             return;
         }
 
@@ -60,43 +229,54 @@ public class Main {
         switch (entity) {
             case "student" -> {
                 if (key.isEmpty()) {
-                    System.out.println("error: missing student ID");
+                    out.println("error: missing student ID");
                     return;
                 }
-                System.out.print(registry.findStudentDisplay(key));
+                out.print(registry.findStudentDisplay(key));
             }
             case "course" -> {
                 if (key.isEmpty()) {
-                    System.out.println("error: missing course code");
+                    out.println("error: missing course code");
                     return;
                 }
-                System.out.print(registry.findCourseDisplay(key));
+                out.print(registry.findCourseDisplay(key));
             }
             case "grade" -> {
                 if (key.isEmpty()) {
-                    System.out.println("error: missing grade key");
+                    out.println("error: missing grade key");
                     return;
                 }
                 String[] kk = key.split(", ", -1);
                 if (kk.length != 2) {
-                    System.out.println("error: invalid grade key");
+                    out.println("error: invalid grade key");
                     return;
                 }
-                System.out.print(registry.findGradeDisplay(kk[0].trim(), kk[1].trim()));
+                out.print(registry.findGradeDisplay(kk[0].trim(), kk[1].trim()));
             }
-            default -> System.out.println("error: no such entity");
+            default -> out.println("error: no such entity");
         }
     }
 
-    private static void handleQuery(Registry registry, String rest) {
+    private static void handleQuery(Registry registry, String rest, PrintStream out) {
         if (rest.isEmpty()) {
-            System.out.println("error: missing entity");
+            out.println("error: missing entity");
             return;
         }
         String[] p = rest.split("\\s+", 2);
         String entity = p[0].trim();
         String criteria = p.length > 1 ? p[1].trim() : "";
-        System.out.print(registry.queryDisplay(entity, criteria));
+
+        // rows are streamed through one buffer instead of being collected into a String first
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()), 1 << 16);
+        try {
+            registry.queryTo(entity, criteria, w);
+        } finally {
+            try {
+                w.flush();
+            } catch (IOException e) {
+                out.println("error: cannot write query output");
+            }
+        }
     }
 
     private static void handleAdd(Registry registry, String rest) {
@@ -116,6 +296,52 @@ public class Main {
         }
     }
 
+    private static void handleImport(Registry registry, String rest) {
+        if (rest.isEmpty()) {
+            System.out.println("error: missing entity");
+            return;
+        }
+        String[] p = rest.split("\\s+", 2);
+        if (p.length < 2) {
+            System.out.println("error: missing file name");
+            return;
+        }
+        registry.importFromFile(p[0].trim(), p[1].trim());
+    }
+
+    // the JDK server writes headers and body separately; with Nagle's algorithm on, the body then waits
+    // for the client's delayed ACK (about 40 ms) on every keep-alive request. The property is read once
+    // for the whole process, which is why the CLI sets it rather than RegistryServer.
+    private static final String NODELAY = "sun.net.httpserver.nodelay";
+
+    // serve <port> [host]: serves the loaded registry over HTTP in the background, on the loopback
+    // interface unless a host (e.g. 0.0.0.0) is given; the CLI keeps working and quit stops it
+    private static RegistryServer handleServe(Registry registry, RegistryServer running, String rest) {
+        if (running != null) {
+            System.out.println("error: already serving on port " + running.port());
+            return running;
+        }
+        if (rest.isEmpty()) {
+            System.out.println("error: missing port");
+            return null;
+        }
+        String[] p = rest.split("\\s+", 2);
+        int port = parseInt(p[0], "invalid port");
+        InetAddress host;
+        try {
+            host = p.length == 2 ? InetAddress.getByName(p[1]) : InetAddress.getLoopbackAddress();
+        } catch (UnknownHostException e) {
+            System.out.println("error: invalid host");
+            return null;
+        }
+
+        if (System.getProperty(NODELAY) == null) System.setProperty(NODELAY, "true");
+        RegistryServer server = new RegistryServer(registry, host, port);
+        if (p.length == 2) System.out.println("serving on " + host.getHostAddress() + " port " + server.port());
+        else System.out.println("serving on port " + server.port());
+        return server;
+    }
+
     private static void handleReport(ReportService reportService, String rest) {
         if (rest.isEmpty()) {
             System.out.println("error: missing report type");
@@ -154,6 +380,24 @@ public class Main {
                 String fileName = p[2];
                 reportService.reportTranscript(id, fileName);
             }
+            case "transcripts" -> {
+                if (p.length < 3) {
+                    System.out.println("error: missing parameters");
+                    return;
+                }
+                reportService.reportTranscripts(p[1], p[2]);
+                System.out.println("Report generated.");
+            }
+            case "status" -> {
+                List<ReportJob> jobs = reportService.jobs();
+                if (jobs.isEmpty()) {
+                    System.out.println("no reports submitted");
+                    return;
+                }
+                for (ReportJob job : jobs) {
+                    System.out.println(job.statusLine());
+                }
+            }
             default -> System.out.println("error: unknown report type");
         }
     }
@@ -0,0 +1,231 @@
+package unyt.registry;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Parses grades.txt straight from a memory-mapped region. Well-formed ASCII lines are checked and split
+// on the raw bytes and their fields interned, so a line costs one Evaluation and no temporary Strings.
+// Anything the fast path does not recognise is decoded and handed to DataLoader.parseGrade, which keeps
+// accept/reject behaviour and error messages identical to the line-based loader.
+final class MappedGradeParser {
+    private MappedGradeParser() {}
+
+    // largest region mapped at once; regions are cut back to the last complete line
+    private static final int WINDOW = 1 << 30;
+
+    record Result(List<Evaluation> grades, int lines, int failedLine, RuntimeException failure) {}
+
+    static Result parse(FileChannel ch, long from, long to) throws IOException {
+        List<Evaluation> list = new ArrayList<>();
+        Interner ids = new Interner();
+        Interner codes = new Interner();
+        Interner semesters = new Interner();
+
+        int lineNo = 0;
+        long pos = from;
+        while (pos < to) {
+            int len = (int) Math.min(to - pos, WINDOW);
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            int limit = len;
+            if (pos + len < to) {
+                while (limit > 0 && buf.get(limit - 1) != '\n') limit--;
+                if (limit == 0) limit = len;
+            }
+
+            int i = 0;
+            while (i < limit) {
+                int j = i;
+                while (j < limit) {
+                    byte b = buf.get(j);
+                    if (b == '\n' || b == '\r') break;
+                    j++;
+                }
+                lineNo++;
+                try {
+                    Evaluation e = parseLine(buf, i, j, lineNo, ids, codes, semesters);
+                    if (e != null) list.add(e);
+                } catch (RuntimeException ex) {
+                    return new Result(list, lineNo, lineNo, ex);
+                }
+                if (j < limit && buf.get(j) == '\r' && j + 1 < limit && buf.get(j + 1) == '\n') j++;
+                i = j + 1;
+            }
+            pos += limit;
+        }
+        return new Result(list, lineNo, 0, null);
+    }
+
+    private static Evaluation parseLine(MappedByteBuffer buf, int start, int end, int lineNo,
+                                        Interner ids, Interner codes, Interner semesters) {
+        int s = start;
+        int e = end;
+        while (s < e && isBlank(buf.get(s))) s++;
+        while (e > s && isBlank(buf.get(e - 1))) e--;
+        if (s == e) return null;
+
+        // field boundaries: exactly three ", " separators, same as split(", ", -1) yielding 4 parts
+        int[] cut = new int[3];
+        int found = 0;
+        for (int k = s; k < e; k++) {
+            byte b = buf.get(k);
+            if (b < 0) return slowPath(buf, start, end, lineNo);
+            if (b == ',' && k + 1 < e && buf.get(k + 1) == ' ') {
+                if (found == 3) return slowPath(buf, start, end, lineNo);
+                cut[found++] = k;
+                k++;
+            }
+        }
+        if (found != 3) return slowPath(buf, start, end, lineNo);
+
+        int idS = skipBlank(buf, s, cut[0]), idE = trimEnd(buf, idS, cut[0]);
+        int ccS = skipBlank(buf, cut[0] + 2, cut[1]), ccE = trimEnd(buf, ccS, cut[1]);
+        int smS = skipBlank(buf, cut[1] + 2, cut[2]), smE = trimEnd(buf, smS, cut[2]);
+        int grS = skipBlank(buf, cut[2] + 2, e), grE = trimEnd(buf, grS, e);
+
+        int grade = parseGrade(buf, grS, grE);
+        if (grade < 0 || !isStudentId(buf, idS, idE) || !isCourseCode(buf, ccS, ccE) || !isSemester(buf, smS, smE)) {
+            return slowPath(buf, start, end, lineNo);
+        }
+
+        return new Evaluation(ids.intern(buf, idS, idE), codes.intern(buf, ccS, ccE),
+                semesters.intern(buf, smS, smE), grade);
+    }
+
+    private static Evaluation slowPath(MappedByteBuffer buf, int start, int end, int lineNo) {
+        byte[] bytes = new byte[end - start];
+        buf.get(start, bytes);
+        return DataLoader.parseGrade(new String(bytes, StandardCharsets.UTF_8), lineNo);
+    }
+
+    // ---------- BYTE CHECKS ----------
+
+    private static boolean isBlank(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+
+    private static int skipBlank(MappedByteBuffer buf, int s, int e) {
+        while (s < e && isBlank(buf.get(s))) s++;
+        return s;
+    }
+
+    private static int trimEnd(MappedByteBuffer buf, int s, int e) {
+        while (e > s && isBlank(buf.get(e - 1))) e--;
+        return e;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    // 0..100 written with plain digits, otherwise -1
+    private static int parseGrade(MappedByteBuffer buf, int s, int e) {
+        if (s == e || e - s > 3) return -1;
+        int v = 0;
+        for (int k = s; k < e; k++) {
+            byte b = buf.get(k);
+            if (!isDigit(b)) return -1;
+            v = v * 10 + (b - '0');
+        }
+        return v <= 100 ? v : -1;
+    }
+
+    private static boolean isStudentId(MappedByteBuffer buf, int s, int e) {
+        if (s == e) return false;
+        for (int k = s; k < e; k++) {
+            if (!isDigit(buf.get(k))) return false;
+        }
+        return true;
+    }
+
+    private static boolean isCourseCode(MappedByteBuffer buf, int s, int e) {
+        int letters = e - s - 3;
+        if (letters < 2 || letters > 4) return false;
+        for (int k = s; k < s + letters; k++) {
+            byte b = buf.get(k);
+            if (b < 'A' || b > 'Z') return false;
+        }
+        for (int k = s + letters; k < e; k++) {
+            if (!isDigit(buf.get(k))) return false;
+        }
+        return true;
+    }
+
+    private static boolean isSemester(MappedByteBuffer buf, int s, int e) {
+        int len = e - s;
+        int prefix;
+        if (len == 10 && startsWith(buf, s, "Spring")) prefix = 6;
+        else if (len == 8 && startsWith(buf, s, "Fall")) prefix = 4;
+        else return false;
+        for (int k = s + prefix; k < e; k++) {
+            if (!isDigit(buf.get(k))) return false;
+        }
+        return true;
+    }
+
+    private static boolean startsWith(MappedByteBuffer buf, int s, String prefix) {
+        for (int k = 0; k < prefix.length(); k++) {
+            if (buf.get(s + k) != prefix.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    // ---------- INTERNING ----------
+
+    // open-addressing table from ASCII byte ranges to shared Strings
+    private static final class Interner {
+        private String[] keys = new String[64];
+        private int[] hashes = new int[64];
+        private int size;
+
+        String intern(MappedByteBuffer buf, int s, int e) {
+            int h = 0;
+            for (int k = s; k < e; k++) h = 31 * h + buf.get(k);
+
+            int mask = keys.length - 1;
+            int slot = h & mask;
+            while (keys[slot] != null) {
+                if (hashes[slot] == h && matches(keys[slot], buf, s, e)) return keys[slot];
+                slot = (slot + 1) & mask;
+            }
+
+            String v = new String(bytes(buf, s, e), StandardCharsets.US_ASCII);
+            keys[slot] = v;
+            hashes[slot] = h;
+            if (++size * 2 > keys.length) grow();
+            return v;
+        }
+
+        private static boolean matches(String key, MappedByteBuffer buf, int s, int e) {
+            if (key.length() != e - s) return false;
+            for (int k = 0; k < key.length(); k++) {
+                if (key.charAt(k) != buf.get(s + k)) return false;
+            }
+            return true;
+        }
+
+        private static byte[] bytes(MappedByteBuffer buf, int s, int e) {
+            byte[] b = new byte[e - s];
+            buf.get(s, b);
+            return b;
+        }
+
+        private void grow() {
+            String[] oldKeys = keys;
+            int[] oldHashes = hashes;
+            keys = new String[oldKeys.length * 2];
+            hashes = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == null) continue;
+                int slot = oldHashes[i] & mask;
+                while (keys[slot] != null) slot = (slot + 1) & mask;
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+}
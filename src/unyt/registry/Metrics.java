@@ -0,0 +1,213 @@
+package unyt.registry;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters and latency histograms per command ("find.student", "report.topStudents.csv", ...) and row
+// counts per queried entity, cheap enough to record on every command from any thread. Read through the
+// stats command as text, or written to a file as JSON or Prometheus text.
+public final class Metrics {
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Rows> queries = new ConcurrentHashMap<>();
+
+    public void record(String name, long nanos, boolean failed) {
+        Timer t = timers.computeIfAbsent(name, k -> new Timer());
+        t.latency.record(nanos);
+        if (failed) t.errors.increment();
+    }
+
+    // scanned: candidates of the query, checked against the criteria left after the index lookup or, when none
+    // are left, passed unchecked (then scanned == matched); matched: rows that passed; returned: rows after paging
+    void recordQuery(String entity, long scanned, long matched, long returned) {
+        Rows r = queries.computeIfAbsent(entity, k -> new Rows());
+        r.queries.increment();
+        r.scanned.add(scanned);
+        r.matched.add(matched);
+        r.returned.add(returned);
+    }
+
+    private static final class Timer {
+        final Histogram latency = new Histogram();
+        final LongAdder errors = new LongAdder();
+    }
+
+    private static final class Rows {
+        final LongAdder queries = new LongAdder();
+        final LongAdder scanned = new LongAdder();
+        final LongAdder matched = new LongAdder();
+        final LongAdder returned = new LongAdder();
+    }
+
+    // ---------- HISTOGRAM ----------
+
+    // Log-linear buckets in the style of HdrHistogram: values below 16 ns get a bucket each, and every
+    // power of two above is split into 16 equal buckets, so a reported value is within 1/16 (6.25%) of the
+    // recorded one, over the whole long range in under a thousand buckets.
+    static final class Histogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long v) {
+            if (v < 0) v = 0;
+            counts.incrementAndGet(bucket(v));
+            count.increment();
+            sum.add(v);
+            max.accumulateAndGet(v, Math::max);
+        }
+
+        static int bucket(long v) {
+            if (v < SUB) return (int) v;
+            int e = 63 - Long.numberOfLeadingZeros(v);
+            return (e - SUB_BITS + 1) * SUB + (int) ((v >>> (e - SUB_BITS)) & (SUB - 1));
+        }
+
+        // highest value that falls into bucket i
+        static long upper(int i) {
+            if (i < SUB) return i;
+            int e = i / SUB + SUB_BITS - 1;
+            long width = 1L << (e - SUB_BITS);
+            return ((SUB + i % SUB) * width) + width - 1;
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        double mean() {
+            long n = count.sum();
+            return n == 0 ? 0.0 : (double) sum.sum() / n;
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        long sum() {
+            return sum.sum();
+        }
+
+        // smallest bucket bound that at least q of the values are at or below, capped at the maximum
+        long quantile(double q) {
+            long n = count.sum();
+            if (n == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(q * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) return Math.min(upper(i), max.get());
+            }
+            return max.get();
+        }
+    }
+
+    // ---------- OUTPUT ----------
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] QUANTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    public void appendText(Appendable out) throws IOException {
+        if (timers.isEmpty() && queries.isEmpty()) {
+            out.append("no commands recorded\n");
+            return;
+        }
+        for (Map.Entry<String, Timer> e : new TreeMap<>(timers).entrySet()) {
+            Histogram h = e.getValue().latency;
+            out.append(e.getKey()).append(": count ").append(String.valueOf(h.count()))
+                    .append(", errors ").append(String.valueOf(e.getValue().errors.sum()))
+                    .append(", mean ").append(millis(h.mean()));
+            for (int i = 0; i < QUANTILES.length; i++) {
+                out.append(", ").append(QUANTILE_NAMES[i]).append(' ').append(millis(h.quantile(QUANTILES[i])));
+            }
+            out.append(", max ").append(millis(h.max())).append(" ms\n");
+        }
+        for (Map.Entry<String, Rows> e : new TreeMap<>(queries).entrySet()) {
+            Rows r = e.getValue();
+            out.append("query.").append(e.getKey()).append(" rows: queries ").append(String.valueOf(r.queries.sum()))
+                    .append(", scanned ").append(String.valueOf(r.scanned.sum()))
+                    .append(", matched ").append(String.valueOf(r.matched.sum()))
+                    .append(", returned ").append(String.valueOf(r.returned.sum())).append('\n');
+        }
+    }
+
+    public void writeJson(Writer out) throws IOException {
+        out.write("{\n  \"commands\": {");
+        boolean first = true;
+        for (Map.Entry<String, Timer> e : new TreeMap<>(timers).entrySet()) {
+            Histogram h = e.getValue().latency;
+            out.write(first ? "\n    " : ",\n    ");
+            first = false;
+            JsonWriter.q(out, e.getKey());
+            out.write(": {\"count\": " + h.count() + ", \"errors\": " + e.getValue().errors.sum()
+                    + ", \"meanMs\": " + millis(h.mean()));
+            for (int i = 0; i < QUANTILES.length; i++) {
+                out.write(", \"" + QUANTILE_NAMES[i] + "Ms\": " + millis(h.quantile(QUANTILES[i])));
+            }
+            out.write(", \"maxMs\": " + millis(h.max()) + "}");
+        }
+        out.write(first ? "},\n" : "\n  },\n");
+
+        out.write("  \"queries\": {");
+        first = true;
+        for (Map.Entry<String, Rows> e : new TreeMap<>(queries).entrySet()) {
+            Rows r = e.getValue();
+            out.write(first ? "\n    " : ",\n    ");
+            first = false;
+            JsonWriter.q(out, e.getKey());
+            out.write(": {\"queries\": " + r.queries.sum() + ", \"scanned\": " + r.scanned.sum()
+                    + ", \"matched\": " + r.matched.sum() + ", \"returned\": " + r.returned.sum() + "}");
+        }
+        out.write(first ? "}\n}\n" : "\n  }\n}\n");
+    }
+
+    // Prometheus text exposition format: latencies as summaries in seconds, everything else as counters
+    public void writePrometheus(Writer out) throws IOException {
+        Map<String, Timer> sorted = new TreeMap<>(timers);
+        out.write("# HELP registry_command_seconds Command latency.\n");
+        out.write("# TYPE registry_command_seconds summary\n");
+        for (Map.Entry<String, Timer> e : sorted.entrySet()) {
+            Histogram h = e.getValue().latency;
+            String label = "command=\"" + e.getKey() + "\"";
+            for (double q : QUANTILES) {
+                out.write("registry_command_seconds{" + label + ",quantile=\"" + q + "\"} " + seconds(h.quantile(q)) + "\n");
+            }
+            out.write("registry_command_seconds_sum{" + label + "} " + seconds(h.sum()) + "\n");
+            out.write("registry_command_seconds_count{" + label + "} " + h.count() + "\n");
+        }
+        out.write("# HELP registry_command_errors_total Commands that failed with an error.\n");
+        out.write("# TYPE registry_command_errors_total counter\n");
+        for (Map.Entry<String, Timer> e : sorted.entrySet()) {
+            out.write("registry_command_errors_total{command=\"" + e.getKey() + "\"} " + e.getValue().errors.sum() + "\n");
+        }
+        out.write("# HELP registry_query_rows_total Rows scanned, matched and returned by queries.\n");
+        out.write("# TYPE registry_query_rows_total counter\n");
+        for (Map.Entry<String, Rows> e : new TreeMap<>(queries).entrySet()) {
+            Rows r = e.getValue();
+            String entity = "entity=\"" + e.getKey() + "\"";
+            out.write("registry_query_rows_total{" + entity + ",kind=\"scanned\"} " + r.scanned.sum() + "\n");
+            out.write("registry_query_rows_total{" + entity + ",kind=\"matched\"} " + r.matched.sum() + "\n");
+            out.write("registry_query_rows_total{" + entity + ",kind=\"returned\"} " + r.returned.sum() + "\n");
+        }
+    }
+
+    private static String millis(double nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static String seconds(double nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+}
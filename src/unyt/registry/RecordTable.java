@@ -0,0 +1,93 @@
+package unyt.registry;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Append-only table of records in insertion order, indexed by key. Records are never replaced or removed,
+// so a reader only needs a record count to see a fixed state: one writer at a time adds records and then
+// publish()es them, and reads are bounded by visible() or by a count pinned earlier. Records added but not
+// yet published (e.g. the rest of an import batch) are only seen by the writer, through peek().
+final class RecordTable<T> {
+    private final ConcurrentHashMap<String, Integer> positions = new ConcurrentHashMap<>();
+    private volatile Object[] items = new Object[16];
+    private int size; // writer only
+    private volatile int visible;
+
+    // position of the new record
+    int add(String key, T record) {
+        Object[] a = items;
+        if (size == a.length) {
+            a = Arrays.copyOf(a, size * 2);
+            items = a;
+        }
+        a[size] = record;
+        positions.put(key, size);
+        return size++;
+    }
+
+    void publish() {
+        visible = size;
+    }
+
+    int visible() {
+        return visible;
+    }
+
+    void clear() {
+        positions.clear();
+        items = new Object[16];
+        size = 0;
+        visible = 0;
+    }
+
+    // ---------- WRITER ----------
+
+    boolean containsKey(String key) {
+        return positions.containsKey(key);
+    }
+
+    T peek(String key) {
+        Integer p = positions.get(key);
+        return p == null ? null : at(p);
+    }
+
+    // ---------- READERS ----------
+
+    // the record if it is among the first limit records
+    T get(String key, int limit) {
+        Integer p = positions.get(key);
+        return p == null || p >= limit ? null : at(p);
+    }
+
+    // -1 when absent
+    int position(String key) {
+        Integer p = positions.get(key);
+        return p == null ? -1 : p;
+    }
+
+    @SuppressWarnings("unchecked")
+    T at(int position) {
+        return (T) items[position];
+    }
+
+    // the first limit records
+    List<T> values(int limit) {
+        Object[] a = items;
+        return new AbstractList<>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public T get(int i) {
+                Objects.checkIndex(i, limit);
+                return (T) a[i];
+            }
+
+            @Override
+            public int size() {
+                return limit;
+            }
+        };
+    }
+}
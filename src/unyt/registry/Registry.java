@@ -1,34 +1,157 @@
 package unyt.registry;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Safe to share between threads. Records are only ever added, never changed or removed, so writes (load,
+// add, import, snapshot, close) take writeLock one at a time and publish the new records once they are
+// complete, while reads take no lock: each one pins a Horizon, the record counts published when it
+// starts, and only looks at records below it. A read therefore sees every record of a write or none of
+// them (an import batch included), however many writes finish while it runs.
+public class Registry implements AutoCloseable {
+
+    private volatile boolean loaded = false;
+    private volatile Path baseFolder;
+    private DataWriter writer;
+
+    // insertion ordered, so a snapshot lists records in the same order as the data files
+    private final RecordTable<Student> students;
+    private final RecordTable<Course> courses;
+    // rows in insertion order, indexed by (student, course), student, course and semester
+    private final GradeStore grades;
+    // positions in students
+    private final Map<Level, IntLog> studentsByLevel;
+
+    private final TrigramIndex<Student> studentNames;
+    private final TrigramIndex<Student> studentSurnames;
+    private final TrigramIndex<Student> studentEmails;
+    private final TrigramIndex<Course> courseTitles;
+
+    private final Map<String, StudentStats> stats;
+    // guarded by writeLock
+    private final TreeSet<StudentRow> ranking;
+    // set while load adds grades; the ranking is then built once at the end instead of per grade
+    private boolean loading;
+
+    private final Object writeLock;
+    // the counts every read of a reportSnapshot() is bounded by; null on the live registry
+    private final Horizon pinned;
+
+    private final Metrics metrics;
 
-public class Registry {
-
-    private boolean loaded = false;
-    private Path baseFolder;
+    private final GradingService grading = new GradingService();
 
-    private final Map<String, Student> students = new HashMap<>();
-    private final Map<String, Course> courses = new HashMap<>();
-    private final Map<GradeKey, Evaluation> grades = new HashMap<>();
+    public Registry() {
+        students = new RecordTable<>();
+        courses = new RecordTable<>();
+        grades = new GradeStore();
+        studentsByLevel = new EnumMap<>(Level.class);
+        for (Level l : Level.values()) studentsByLevel.put(l, new IntLog());
+        studentNames = new TrigramIndex<>(students);
+        studentSurnames = new TrigramIndex<>(students);
+        studentEmails = new TrigramIndex<>(students);
+        courseTitles = new TrigramIndex<>(courses);
+        stats = new ConcurrentHashMap<>();
+        ranking = new TreeSet<>(Registry::compareStudentRows);
+        writeLock = new Object();
+        metrics = new Metrics();
+        pinned = null;
+    }
 
-    private final GradingService grading = new GradingService();
+    // read-only view of live's data as of pinned
+    private Registry(Registry live, Horizon pinned) {
+        students = live.students;
+        courses = live.courses;
+        grades = live.grades;
+        studentsByLevel = live.studentsByLevel;
+        studentNames = live.studentNames;
+        studentSurnames = live.studentSurnames;
+        studentEmails = live.studentEmails;
+        courseTitles = live.courseTitles;
+        stats = live.stats;
+        ranking = live.ranking;
+        writeLock = live.writeLock;
+        metrics = live.metrics;
+        this.pinned = pinned;
+        baseFolder = live.baseFolder;
+        loaded = true;
+    }
 
     public boolean isLoaded() { return loaded; }
     public Path getBaseFolder() { return baseFolder; }
+    public Metrics metrics() { return metrics; }
+
+    // Commits and forces the write-ahead log. The data files are left to the background compaction and the
+    // snapshot command, so quitting costs the log tail rather than a rewrite of the whole dataset; the
+    // next load replays whatever the log still holds.
+    @Override
+    public void close() {
+        synchronized (writeLock) {
+            if (writer == null) return;
+            writer.close();
+        }
+    }
+
+    // ---------- HORIZON ----------
+
+    // Record counts a read is bounded by. Writes publish students, then courses, then grades, and a horizon
+    // reads them in the opposite order, so every grade below it has its student and course below it too.
+    private record Horizon(int students, int courses, int grades) {}
+
+    private Horizon horizon() {
+        if (pinned != null) return pinned;
+        int g = grades.visible();
+        int s = students.visible();
+        int c = courses.visible();
+        return new Horizon(s, c, g);
+    }
+
+    private void publish() {
+        students.publish();
+        courses.publish();
+        grades.publish();
+    }
+
+    private void requireWritable() {
+        if (pinned != null) throw new IllegalArgumentException("registry snapshot is read-only");
+    }
 
     // ---------- LOAD ----------
     public void load(String folderPath) {
+        requireWritable();
+        synchronized (writeLock) {
+            Events.Load event = new Events.Load();
+            event.folder = folderPath;
+            event.begin();
+            try {
+                loadLocked(folderPath, event);
+            } catch (RuntimeException e) {
+                event.failure = e.getMessage();
+                throw e;
+            } finally {
+                event.commit();
+            }
+        }
+    }
+
+    // the parse of each data file and every phase below are recorded as JFR events of their own
+    private void loadLocked(String folderPath, Events.Load event) {
         if (loaded) {
+            event.failure = "data already loaded";
             System.out.println("error: data already loaded, cannot load again!");
             return;
         }
 
         DataLoader.LoadResult res;
+        DataWriter.Config writerConfig;
         try {
+            writerConfig = DataWriter.Config.fromSystemProperties();
             res = DataLoader.loadAll(folderPath);
         } catch (IllegalArgumentException e) {
+            event.failure = e.getMessage();
             // match examples
             if (e.getMessage().equals("invalid folder name")) System.out.println("error: invalid folder name");
             else if (e.getMessage().equals("data files not found")) System.out.println("error: data files not found");
@@ -39,34 +162,165 @@ public class Registry {
         students.clear();
         courses.clear();
         grades.clear();
-
+        studentsByLevel.replaceAll((l, rows) -> new IntLog());
+        studentNames.clear();
+        studentSurnames.clear();
+        studentEmails.clear();
+        courseTitles.clear();
+        stats.clear();
+        ranking.clear();
+
+        event.fromSnapshot = res.fromSnapshot();
+
+        loading = true;
+        Events.LoadPhase phase = Events.LoadPhase.start("students");
         for (Student s : res.students()) {
             if (students.containsKey(s.id())) throw new IllegalArgumentException("duplicate student id in file: " + s.id());
-            students.put(s.id(), s);
+            trackStudent(s);
         }
+        phase.finish(res.students().size());
+
+        phase = Events.LoadPhase.start("courses");
         for (Course c : res.courses()) {
             if (courses.containsKey(c.code())) throw new IllegalArgumentException("duplicate course code in file: " + c.code());
-            courses.put(c.code(), c);
+            trackCourse(c);
+        }
+        phase.finish(res.courses().size());
+
+        phase = Events.LoadPhase.start("grades");
+        if (res.grades() instanceof Snapshot.Grades g) {
+            // written from a registry that already passed these checks
+            putGrades(g);
+        } else {
+            // strict, no file append during load; the checks are only timed apart while a recording runs
+            boolean timed = phase.isEnabled();
+            long checks = 0;
+            for (Evaluation e : res.grades()) {
+                long start = timed ? System.nanoTime() : 0;
+                checkGrade(e);
+                if (timed) checks += System.nanoTime() - start;
+                putGrade(e);
+            }
+            phase.integrityChecks = checks;
         }
-        for (Evaluation e : res.grades()) {
-            addGradeInternal(e, false); // strict, no file append during load
+        publish();
+        phase.finish(res.grades().size());
+
+        if (!res.fromSnapshot() && Snapshot.enabled()) {
+            phase = Events.LoadPhase.start("snapshot");
+            Horizon h = horizon();
+            try {
+                Snapshot.write(res.folder(), students.values(h.students()), courses.values(h.courses()),
+                        grades.all(h.grades()));
+            } catch (IllegalArgumentException e) {
+                // only a startup cache; the next start parses the text files again
+            }
+            phase.finish(h.students() + h.courses() + h.grades());
         }
 
-        this.loaded = true;
+        phase = Events.LoadPhase.start("log");
+        DataLoader.LogReplay log = DataLoader.readLog(res.folder());
+        int recordNo = 0;
+        for (DataLoader.LogRecord r : log.records()) {
+            replay(r, ++recordNo);
+        }
+        loading = false;
+        publish();
+        phase.finish(recordNo);
+
+        phase = Events.LoadPhase.start("ranking");
+        rebuildRanking();
+        phase.finish(students.visible());
+
         this.baseFolder = res.folder();
+        this.writer = new DataWriter(baseFolder, writerConfig, log.lastSegment(), log.bytes());
+        this.loaded = true;
+        maybeCompact();
 
+        event.students = students.visible();
+        event.courses = courses.visible();
+        event.grades = grades.visible();
         System.out.printf("loaded %d students, %d courses, and %d grades%n",
-                students.size(), courses.size(), grades.size());
+                students.visible(), courses.visible(), grades.visible());
+    }
+
+    // Applies one logged add on top of the data files. A compaction that crashed after replacing some of
+    // the files leaves records that are already there, which are skipped.
+    private void replay(DataLoader.LogRecord r, int recordNo) {
+        switch (r.kind()) {
+            case DataWriter.STUDENT -> {
+                Student s = DataLoader.parseStudent(r.line(), recordNo);
+                if (s != null && !students.containsKey(s.id())) {
+                    trackStudent(s);
+                }
+            }
+            case DataWriter.COURSE -> {
+                Course c = DataLoader.parseCourse(r.line(), recordNo);
+                if (c != null && !courses.containsKey(c.code())) {
+                    trackCourse(c);
+                }
+            }
+            case DataWriter.GRADE -> {
+                Evaluation e = DataLoader.parseGrade(r.line(), recordNo);
+                if (e != null && !hasGrade(e.studentId(), e.courseCode())) {
+                    addGradeInternal(e, false);
+                }
+            }
+            default -> throw new IllegalArgumentException("invalid log record " + recordNo);
+        }
+    }
+
+    // folds the write-ahead log into the data files in the background once it has grown past its limit
+    private void maybeCompact() {
+        if (writer.needsCompaction()) compact(false);
+    }
+
+    // The compactor reads the published records through views bounded by the current horizon, so later
+    // adds do not need to wait for it and it needs no copy.
+    private void compact(boolean wait) {
+        Horizon h = horizon();
+        writer.compact(students.values(h.students()), courses.values(h.courses()), grades.all(h.grades()), wait);
+    }
+
+    // A read-only view of the data as it is now, which later adds to this registry do not affect, so
+    // report jobs can run off the REPL thread. Nothing is copied: the view shares this registry's
+    // append-only data and bounds every read by the current horizon.
+    Registry reportSnapshot() {
+        Validation.requireLoaded(loaded);
+        return new Registry(this, horizon());
+    }
+
+    // folds the write-ahead log into fresh data files and registry.snap now, waiting for it to finish
+    public void writeSnapshot() {
+        Validation.requireLoaded(loaded);
+        requireWritable();
+        synchronized (writeLock) {
+            compact(true);
+        }
+        System.out.println("snapshot written");
     }
 
     // ---------- FIND ----------
-    public String findStudentDisplay(String id) {
+    // the CLI prints the *Display text, the HTTP server serializes the records
+    public record StudentDetails(Student student, int coursesTaken, int totalCredits, double gpa) {}
+    public record GradeDetails(Student student, Course course, String semester, int numericGrade, String letterGrade) {}
+
+    // null when there is no such student
+    public StudentDetails findStudent(String id) {
         Validation.requireLoaded(loaded);
+        Horizon h = horizon();
+
+        Student s = students.get(id, h.students());
+        if (s == null) return null;
 
-        Student s = students.get(id);
-        if (s == null) return "error: no student found\n";
+        StudentStats st = statsOf(s, h);
+        return new StudentDetails(s, st.coursesTaken(), st.totalCredits(), st.gpa());
+    }
 
-        StudentStats st = computeStudentStats(id);
+    public String findStudentDisplay(String id) {
+        StudentDetails d = findStudent(id);
+        if (d == null) return "error: no student found\n";
+        Student s = d.student();
 
         StringBuilder sb = new StringBuilder();
         sb.append("id: ").append(s.id()).append("\n");
@@ -74,16 +328,21 @@ public class Registry {
         sb.append("surname: ").append(s.surname()).append("\n");
         sb.append("email: ").append(s.email()).append("\n");
         sb.append("level: ").append(s.level().label()).append("\n");
-        sb.append("courses: ").append(st.coursesTaken).append("\n");
-        sb.append("credits: ").append(st.totalCredits).append("\n");
-        sb.append("gpa: ").append(String.format(Locale.US, "%.2f", st.gpa)).append("\n");
+        sb.append("courses: ").append(d.coursesTaken()).append("\n");
+        sb.append("credits: ").append(d.totalCredits()).append("\n");
+        sb.append("gpa: ");
+        TwoDecimals.append(sb, d.gpa()).append("\n");
         return sb.toString();
     }
 
-    public String findCourseDisplay(String code) {
+    // null when there is no such course
+    public Course findCourse(String code) {
         Validation.requireLoaded(loaded);
+        return courses.get(code, horizon().courses());
+    }
 
-        Course c = courses.get(code);
+    public String findCourseDisplay(String code) {
+        Course c = findCourse(code);
         if (c == null) return "error: no course found\n";
 
         CourseLevel cl = Validation.computeCourseLevel(c.code());
@@ -96,61 +355,194 @@ public class Registry {
         return sb.toString();
     }
 
-    public String findGradeDisplay(String studentId, String courseCode) {
+    // existence check that allocates nothing, for duplicate checks on every added or loaded grade; like
+    // the other checks made by writes it also sees records that are not published yet
+    public boolean hasGrade(String studentId, String courseCode) {
+        return grades.contains(studentId, courseCode);
+    }
+
+    // null when there is no such grade
+    public GradeDetails findGrade(String studentId, String courseCode) {
         Validation.requireLoaded(loaded);
 
-        Evaluation e = grades.get(new GradeKey(studentId, courseCode));
-        if (e == null) return "error: no grade found\n";
+        Horizon h = horizon();
+        int row = grades.find(studentId, courseCode, h.grades());
+        if (row < 0) return null;
+        Evaluation e = grades.get(row);
 
-        Student s = students.get(studentId);
-        Course c = courses.get(courseCode);
-        if (s == null || c == null) return "error: internal data inconsistency\n";
+        Student s = students.get(studentId, h.students());
+        Course c = courses.get(courseCode, h.courses());
+        if (s == null || c == null) throw new IllegalArgumentException("internal data inconsistency");
 
         LetterGrade lg = grading.letterFor(s.level(), e.numericGrade());
+        return new GradeDetails(s, c, e.semester(), e.numericGrade(), lg.code());
+    }
+
+    public String findGradeDisplay(String studentId, String courseCode) {
+        GradeDetails d = findGrade(studentId, courseCode);
+        if (d == null) return "error: no grade found\n";
+        Student s = d.student();
+        Course c = d.course();
 
         StringBuilder sb = new StringBuilder();
         sb.append("student: (").append(s.id()).append(" - ").append(s.name()).append(" ").append(s.surname()).append(")\n");
         sb.append("course: (").append(c.code()).append(" - ").append(c.title()).append(", ").append(c.credits()).append(" cr.)\n");
-        sb.append("semester: ").append(e.semester()).append("\n");
-        sb.append("grade: ").append(e.numericGrade()).append("\n");
-        sb.append("lettergrade: ").append(lg.code()).append("\n");
+        sb.append("semester: ").append(d.semester()).append("\n");
+        sb.append("grade: ").append(d.numericGrade()).append("\n");
+        sb.append("lettergrade: ").append(d.letterGrade()).append("\n");
         return sb.toString();
     }
 
     // ---------- QUERY ----------
     public String queryDisplay(String entity, String criteriaString) {
+        StringBuilder sb = new StringBuilder();
+        queryTo(entity, criteriaString, sb);
+        return sb.toString();
+    }
+
+    // Writes "N records found" followed by the matching rows to out. The optional limit=/offset= criteria
+    // page the rows (the header still reports the total). A query answered by an index alone streams its
+    // page and stops at the limit; otherwise each candidate is checked once, and only the page's rows are
+    // held until the count is known.
+    public void queryTo(String entity, String criteriaString, Appendable out) {
+        query(entity, criteriaString, out, false);
+    }
+
+    // The same query as one JSON object, {"total": N, "records": [...]}, with a record per row whose
+    // members are named like the query fields. An unknown entity is an error instead of output.
+    public void queryJsonTo(String entity, String criteriaString, Appendable out) {
+        query(entity, criteriaString, out, true);
+    }
+
+    private void query(String entity, String criteriaString, Appendable out, boolean json) {
         Validation.requireLoaded(loaded);
+        Horizon h = horizon();
 
-        List<Map<String, String>> rows;
-        switch (entity) {
-            case "student" -> rows = queryStudents(criteriaString);
-            case "course" -> rows = queryCourses(criteriaString);
-            case "grade" -> rows = queryGrades(criteriaString);
-            default -> { return "error: no such entity\n"; }
+        try {
+            switch (entity) {
+                case "student" -> streamQuery(compile("student", criteriaString, students.values(h.students()),
+                        STUDENT_FIELDS, studentIndexes(h), studentSubstringIndexes(h)), entity, out,
+                        json ? Registry::appendStudentJson : Registry::appendStudentRow, json);
+                case "course" -> streamQuery(compile("course", criteriaString, courses.values(h.courses()),
+                        COURSE_FIELDS, courseIndexes(h), courseSubstringIndexes(h)), entity, out,
+                        json ? Registry::appendCourseJson : Registry::appendCourseRow, json);
+                case "grade" -> streamQuery(compile("grade", criteriaString, grades.all(h.grades()), GRADE_FIELDS,
+                        gradeIndexes(h), Map.of()), entity, out,
+                        json ? Registry::appendGradeJson : Registry::appendGradeRow, json);
+                default -> {
+                    if (json) throw new IllegalArgumentException("no such entity");
+                    out.append("error: no such entity\n");
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot write query output");
         }
+    }
 
-        StringBuilder sb = new StringBuilder();
-        sb.append(rows.size()).append(" records found\n");
-
-        for (Map<String, String> r : rows) {
-            if (entity.equals("student")) {
-                sb.append(r.get("id")).append(", ")
-                        .append(r.get("name")).append(", ")
-                        .append(r.get("surname")).append(", ")
-                        .append(r.get("email")).append(", ")
-                        .append(r.get("level")).append("\n");
-            } else if (entity.equals("course")) {
-                sb.append(r.get("code")).append(", ")
-                        .append(r.get("title")).append(", ")
-                        .append(r.get("credits")).append("\n");
-            } else {
-                sb.append(r.get("studentID")).append(", ")
-                        .append(r.get("courseCode")).append(", ")
-                        .append(r.get("semester")).append(", ")
-                        .append(r.get("grade")).append("\n");
+    private interface RowFormat<T> {
+        void append(Appendable out, T row) throws IOException;
+    }
+
+    private static void appendStudentRow(Appendable out, Student s) throws IOException {
+        out.append(s.id()).append(", ")
+                .append(s.name()).append(", ")
+                .append(s.surname()).append(", ")
+                .append(s.email()).append(", ")
+                .append(s.level().name()).append('\n');
+    }
+
+    private static void appendCourseRow(Appendable out, Course c) throws IOException {
+        out.append(c.code()).append(", ")
+                .append(c.title()).append(", ")
+                .append(String.valueOf(c.credits())).append('\n');
+    }
+
+    private static void appendGradeRow(Appendable out, Evaluation e) throws IOException {
+        out.append(e.studentId()).append(", ")
+                .append(e.courseCode()).append(", ")
+                .append(e.semester()).append(", ")
+                .append(String.valueOf(e.numericGrade())).append('\n');
+    }
+
+    private static void appendStudentJson(Appendable out, Student s) throws IOException {
+        out.append("{\"id\": ");
+        JsonWriter.q(out, s.id());
+        out.append(", \"name\": ");
+        JsonWriter.q(out, s.name());
+        out.append(", \"surname\": ");
+        JsonWriter.q(out, s.surname());
+        out.append(", \"email\": ");
+        JsonWriter.q(out, s.email());
+        out.append(", \"level\": ");
+        JsonWriter.q(out, s.level().label());
+        out.append('}');
+    }
+
+    private static void appendCourseJson(Appendable out, Course c) throws IOException {
+        out.append("{\"code\": ");
+        JsonWriter.q(out, c.code());
+        out.append(", \"title\": ");
+        JsonWriter.q(out, c.title());
+        out.append(", \"credits\": ").append(String.valueOf(c.credits())).append('}');
+    }
+
+    private static void appendGradeJson(Appendable out, Evaluation e) throws IOException {
+        out.append("{\"studentID\": ");
+        JsonWriter.q(out, e.studentId());
+        out.append(", \"courseCode\": ");
+        JsonWriter.q(out, e.courseCode());
+        out.append(", \"semester\": ");
+        JsonWriter.q(out, e.semester());
+        out.append(", \"grade\": ").append(String.valueOf(e.numericGrade())).append('}');
+    }
+
+    private <T> void streamQuery(Query<T> q, String entity, Appendable out, RowFormat<T> format, boolean json)
+            throws IOException {
+        if (q.filters().isEmpty()) {
+            // every candidate matches, so the total is known before the first row and the page is a slice
+            int total = q.candidates().size();
+            header(out, total, json);
+            List<T> page = q.offset() >= total ? List.of()
+                    : q.candidates().subList((int) q.offset(), (int) (q.offset() + Math.min(q.limit(), total - q.offset())));
+            boolean first = true;
+            for (T row : page) {
+                row(out, format, json, first, row);
+                first = false;
             }
+            footer(out, json, page.isEmpty());
+            metrics.recordQuery(entity, total, total, page.size()); // all candidates passed unchecked
+            return;
         }
-        return sb.toString();
+
+        StringBuilder page = new StringBuilder();
+        long scanned = 0;
+        long total = 0;
+        long returned = 0;
+        for (T row : q.candidates()) {
+            scanned++;
+            if (!q.matches(row)) continue;
+            if (total++ < q.offset() || returned >= q.limit()) continue;
+            row(page, format, json, returned++ == 0, row);
+        }
+        header(out, total, json);
+        out.append(page);
+        footer(out, json, returned == 0);
+        metrics.recordQuery(entity, scanned, total, returned);
+    }
+
+    private static void header(Appendable out, long total, boolean json) throws IOException {
+        if (json) out.append("{\"total\": ").append(String.valueOf(total)).append(", \"records\": [");
+        else out.append(String.valueOf(total)).append(" records found\n");
+    }
+
+    private static <T> void row(Appendable out, RowFormat<T> format, boolean json, boolean first, T row)
+            throws IOException {
+        if (json) out.append(first ? "\n  " : ",\n  ");
+        format.append(out, row);
+    }
+
+    private static void footer(Appendable out, boolean json, boolean empty) throws IOException {
+        if (json) out.append(empty ? "]}\n" : "\n]}\n");
     }
 
     private record Criterion(String field, char op, String value) {}
@@ -185,105 +577,147 @@ public class Registry {
         return criteria;
     }
 
-    private boolean applyCriterion(String fieldValue, char op, String value) {
+    private static boolean applyCriterion(String fieldValue, char op, String value) {
         if (op == '=') return fieldValue.equals(value);
         if (op == '~') return fieldValue.contains(value);
         throw new IllegalArgumentException("invalid operator");
     }
 
-    private List<Map<String, String>> queryStudents(String criteriaString) {
-        List<Criterion> criteria = parseCriteria(criteriaString);
+    // ---------- QUERY PLANS ----------
+    // A query is compiled into a candidate source plus filters: every '=' on an indexed field and every
+    // '~' of 3+ characters on a trigram-indexed field offers an index lookup, the smallest of those becomes
+    // the candidate set (implicitly intersected with the rest by the filters), and all criteria are then
+    // checked against those candidates only.
+
+    private static final Map<String, Function<Student, String>> STUDENT_FIELDS = Map.of(
+            "id", Student::id,
+            "name", Student::name,
+            "surname", Student::surname,
+            "email", Student::email,
+            "level", s -> s.level().name());
+
+    private static final Map<String, Function<Course, String>> COURSE_FIELDS = Map.of(
+            "code", Course::code,
+            "title", Course::title,
+            "credits", c -> String.valueOf(c.credits()));
+
+    private static final Map<String, Function<Evaluation, String>> GRADE_FIELDS = Map.of(
+            "studentID", Evaluation::studentId,
+            "courseCode", Evaluation::courseCode,
+            "semester", Evaluation::semester,
+            "grade", e -> String.valueOf(e.numericGrade()));
+
+    private Map<String, Function<String, List<Student>>> studentIndexes(Horizon h) {
+        return Map.of(
+                "id", v -> single(students.get(v, h.students())),
+                "level", v -> {
+                    Level l = levelNamed(v);
+                    return l == null ? List.of() : studentsByLevel.get(l).view(h.students(), students::at);
+                });
+    }
 
-        List<Student> filtered = students.values().stream()
-                .filter(s -> {
-                    for (Criterion c : criteria) {
-                        String fieldValue = switch (c.field) {
-                            case "id" -> s.id();
-                            case "name" -> s.name();
-                            case "surname" -> s.surname();
-                            case "email" -> s.email();
-                            case "level" -> s.level().name();
-                            default -> throw new IllegalArgumentException("invalid field for student: " + c.field);
-                        };
-                        if (!applyCriterion(fieldValue, c.op, c.value)) return false;
-                    }
-                    return true;
-                }).collect(Collectors.toList());
-
-        List<Map<String, String>> rows = new ArrayList<>();
-        for (Student s : filtered) {
-            Map<String, String> r = new HashMap<>();
-            r.put("id", s.id());
-            r.put("name", s.name());
-            r.put("surname", s.surname());
-            r.put("email", s.email());
-            r.put("level", s.level().name());
-            rows.add(r);
-        }
-        return rows;
-    }
-
-    private List<Map<String, String>> queryCourses(String criteriaString) {
-        List<Criterion> criteria = parseCriteria(criteriaString);
+    private Map<String, Function<String, List<Course>>> courseIndexes(Horizon h) {
+        return Map.of("code", v -> single(courses.get(v, h.courses())));
+    }
+
+    private Map<String, Function<String, List<Student>>> studentSubstringIndexes(Horizon h) {
+        return Map.of(
+                "name", v -> studentNames.candidates(v, h.students()),
+                "surname", v -> studentSurnames.candidates(v, h.students()),
+                "email", v -> studentEmails.candidates(v, h.students()));
+    }
+
+    private Map<String, Function<String, List<Course>>> courseSubstringIndexes(Horizon h) {
+        return Map.of("title", v -> courseTitles.candidates(v, h.courses()));
+    }
+
+    private Map<String, Function<String, List<Evaluation>>> gradeIndexes(Horizon h) {
+        return Map.of(
+                "studentID", v -> grades.ofStudent(v, h.grades()),
+                "courseCode", v -> grades.ofCourse(v, h.grades()),
+                "semester", v -> grades.ofSemester(v, h.grades()));
+    }
+
+    private static <T> List<T> single(T v) {
+        return v == null ? List.of() : List.of(v);
+    }
+
+    private static Level levelNamed(String name) {
+        for (Level l : Level.values()) {
+            if (l.name().equals(name)) return l;
+        }
+        return null;
+    }
+
+    private record Filter<T>(Function<T, String> field, char op, String value) {}
 
-        List<Course> filtered = courses.values().stream()
-                .filter(c0 -> {
-                    for (Criterion c : criteria) {
-                        String fieldValue = switch (c.field) {
-                            case "code" -> c0.code();
-                            case "title" -> c0.title();
-                            case "credits" -> String.valueOf(c0.credits());
-                            default -> throw new IllegalArgumentException("invalid field for course: " + c.field);
-                        };
-                        if (!applyCriterion(fieldValue, c.op, c.value)) return false;
-                    }
-                    return true;
-                }).collect(Collectors.toList());
-
-        List<Map<String, String>> rows = new ArrayList<>();
-        for (Course c : filtered) {
-            Map<String, String> r = new HashMap<>();
-            r.put("code", c.code());
-            r.put("title", c.title());
-            r.put("credits", String.valueOf(c.credits()));
-            rows.add(r);
-        }
-        return rows;
-    }
-
-    private List<Map<String, String>> queryGrades(String criteriaString) {
+    private record Query<T>(List<T> candidates, List<Filter<T>> filters, long offset, long limit) {
+        boolean matches(T row) {
+            for (Filter<T> f : filters) {
+                if (!applyCriterion(f.field().apply(row), f.op(), f.value())) return false;
+            }
+            return true;
+        }
+    }
+
+    private <T> Query<T> compile(String entity, String criteriaString, List<T> all,
+                                 Map<String, Function<T, String>> fields,
+                                 Map<String, Function<String, List<T>>> indexes,
+                                 Map<String, Function<String, List<T>>> substringIndexes) {
         List<Criterion> criteria = parseCriteria(criteriaString);
 
-        List<Evaluation> filtered = grades.values().stream()
-                .filter(e -> {
-                    for (Criterion c : criteria) {
-                        String fieldValue = switch (c.field) {
-                            case "studentID" -> e.studentId();
-                            case "courseCode" -> e.courseCode();
-                            case "semester" -> e.semester();
-                            case "grade" -> String.valueOf(e.numericGrade());
-                            default -> throw new IllegalArgumentException("invalid field for grade: " + c.field);
-                        };
-                        if (!applyCriterion(fieldValue, c.op, c.value)) return false;
-                    }
-                    return true;
-                }).collect(Collectors.toList());
-
-        List<Map<String, String>> rows = new ArrayList<>();
-        for (Evaluation e : filtered) {
-            Map<String, String> r = new HashMap<>();
-            r.put("studentID", e.studentId());
-            r.put("courseCode", e.courseCode());
-            r.put("semester", e.semester());
-            r.put("grade", String.valueOf(e.numericGrade()));
-            rows.add(r);
-        }
-        return rows;
+        List<T> candidates = all;
+        List<Filter<T>> filters = new ArrayList<>(criteria.size());
+        // the filter an exact ('=') index already applied to the candidates, or -1
+        int answered = -1;
+        long offset = 0;
+        long limit = Long.MAX_VALUE;
+        for (Criterion c : criteria) {
+            if (c.op == '=' && c.field.equals("offset")) {
+                offset = parsePaging(c.value, "invalid offset");
+                continue;
+            }
+            if (c.op == '=' && c.field.equals("limit")) {
+                limit = parsePaging(c.value, "invalid limit");
+                continue;
+            }
+
+            Function<T, String> field = fields.get(c.field);
+            if (field == null) throw new IllegalArgumentException("invalid field for " + entity + ": " + c.field);
+            filters.add(new Filter<>(field, c.op, c.value));
+
+            Function<String, List<T>> index = (c.op == '=' ? indexes : substringIndexes).get(c.field);
+            List<T> hit = index == null ? null : index.apply(c.value);
+            if (hit != null && hit.size() < candidates.size()) {
+                candidates = hit;
+                answered = c.op == '=' ? filters.size() - 1 : -1;
+            }
+        }
+        if (answered >= 0) filters.remove(answered);
+        return new Query<>(candidates, filters, offset, limit);
+    }
+
+    private static long parsePaging(String value, String err) {
+        long v;
+        try {
+            v = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(err);
+        }
+        if (v < 0) throw new IllegalArgumentException(err);
+        return v;
     }
 
     // ---------- ADD ----------
+    // add* return the outcome line the CLI prints: "1 record added" or "error: ..." for a record that
+    // conflicts with the data; malformed values throw as everywhere else
     public void addStudentFromCli(String values) {
+        System.out.println(addStudent(values));
+    }
+
+    public String addStudent(String values) {
         Validation.requireLoaded(loaded);
+        requireWritable();
 
         String[] p = values.split(", ", -1);
         if (p.length != 5) throw new IllegalArgumentException("invalid number of fields for student");
@@ -300,20 +734,27 @@ public class Registry {
         Validation.validateEmailOptional(email);
         Level level = Validation.parseLevel(levelStr);
 
-        if (students.containsKey(id)) {
-            System.out.println("error: student with id " + id + " is already present");
-            return;
-        }
-
         Student s = new Student(id, name, surname, email.trim(), level);
-        students.put(id, s);
-        DataWriter.appendStudent(baseFolder, s);
+        synchronized (writeLock) {
+            if (students.containsKey(id)) {
+                return "error: student with id " + id + " is already present";
+            }
+            trackStudent(s);
+            publish();
+            writer.appendStudent(s);
+            maybeCompact();
+        }
 
-        System.out.println("1 record added");
+        return "1 record added";
     }
 
     public void addCourseFromCli(String values) {
+        System.out.println(addCourse(values));
+    }
+
+    public String addCourse(String values) {
         Validation.requireLoaded(loaded);
+        requireWritable();
 
         String[] p = values.split(", ", -1);
         if (p.length != 3) throw new IllegalArgumentException("invalid number of fields for course");
@@ -326,20 +767,27 @@ public class Registry {
         Validation.validateNonEmpty(title, "title");
         int credits = Validation.parseCredits(creditsStr);
 
-        if (courses.containsKey(code)) {
-            System.out.println("error: course with code " + code + " is already present");
-            return;
-        }
-
         Course c = new Course(code, title, credits);
-        courses.put(code, c);
-        DataWriter.appendCourse(baseFolder, c);
+        synchronized (writeLock) {
+            if (courses.containsKey(code)) {
+                return "error: course with code " + code + " is already present";
+            }
+            trackCourse(c);
+            publish();
+            writer.appendCourse(c);
+            maybeCompact();
+        }
 
-        System.out.println("1 record added");
+        return "1 record added";
     }
 
     public void addGradeFromCli(String values) {
+        System.out.println(addGrade(values));
+    }
+
+    public String addGrade(String values) {
         Validation.requireLoaded(loaded);
+        requireWritable();
 
         String[] p = values.split(", ", -1);
         if (p.length != 4) throw new IllegalArgumentException("invalid number of fields for grade");
@@ -353,130 +801,346 @@ public class Registry {
         Validation.validateCourseCode(courseCode);
         Validation.validateSemester(semester);
 
-        if (!students.containsKey(studentId)) {
-            System.out.println("error: no student found");
-            return;
+        synchronized (writeLock) {
+            Student s = students.peek(studentId);
+            if (s == null) {
+                return "error: no student found";
+            }
+            if (!courses.containsKey(courseCode)) {
+                return "error: no course found";
+            }
+
+            if (hasGrade(studentId, courseCode)) {
+                return "error: grade for (" + studentId + ", " + courseCode + ") is already present";
+            }
+
+            CourseLevel cl = Validation.computeCourseLevel(courseCode);
+            if (s.level() == Level.G && cl == CourseLevel.UNDERGRADUATE) {
+                return "error: graduate student may not take undergraduate course";
+            }
+
+            Evaluation e = new Evaluation(studentId, courseCode, semester, numericGrade);
+            putGrade(e);
+            publish();
+            writer.appendGrade(e);
+            maybeCompact();
         }
-        if (!courses.containsKey(courseCode)) {
-            System.out.println("error: no course found");
-            return;
+
+        return "1 record added";
+    }
+
+    // ---------- IMPORT ----------
+    // Every row of the file is checked against the loaded data and the rows accepted before it, in one
+    // pass. The accepted rows are then persisted with a single append and applied together; rejected
+    // rows are listed (up to IMPORT_ERRORS_SHOWN) with their line numbers. Readers see the whole batch or
+    // none of it.
+
+    private static final int IMPORT_ERRORS_SHOWN = 10;
+
+    public void importFromFile(String entity, String fileName) {
+        Validation.requireLoaded(loaded);
+        requireWritable();
+
+        synchronized (writeLock) {
+            switch (entity) {
+                case "student" -> importStudents(fileName);
+                case "course" -> importCourses(fileName);
+                case "grade" -> importGrades(fileName);
+                default -> System.out.println("error: no such entity");
+            }
         }
+    }
 
-        GradeKey key = new GradeKey(studentId, courseCode);
-        if (grades.containsKey(key)) {
-            System.out.println("error: grade for (" + studentId + ", " + courseCode + ") is already present");
-            return;
+    private void importStudents(String fileName) {
+        List<DataLoader.ImportRow<Student>> rows = DataLoader.readImport(fileName, "student", DataLoader::parseStudent);
+        List<Student> accepted = new ArrayList<>();
+        Set<String> batch = new HashSet<>();
+        List<String> rejected = new ArrayList<>();
+
+        for (DataLoader.ImportRow<Student> row : rows) {
+            Student s = row.record();
+            String error = row.error();
+            if (error == null && (students.containsKey(s.id()) || !batch.add(s.id()))) {
+                error = "student with id " + s.id() + " is already present";
+            }
+            if (error != null) rejected.add("line " + row.lineNo() + ": " + error);
+            else accepted.add(s);
         }
 
-        Student s = students.get(studentId);
-        CourseLevel cl = Validation.computeCourseLevel(courseCode);
-        if (s.level() == Level.G && cl == CourseLevel.UNDERGRADUATE) {
-            System.out.println("error: graduate student may not take undergraduate course");
-            return;
+        if (!accepted.isEmpty()) {
+            writer.appendStudents(accepted);
+            for (Student s : accepted) {
+                trackStudent(s);
+            }
+            publish();
+        }
+        if (!accepted.isEmpty()) maybeCompact();
+        printImportSummary(accepted.size(), rejected);
+    }
+
+    private void importCourses(String fileName) {
+        List<DataLoader.ImportRow<Course>> rows = DataLoader.readImport(fileName, "course", DataLoader::parseCourse);
+        List<Course> accepted = new ArrayList<>();
+        Set<String> batch = new HashSet<>();
+        List<String> rejected = new ArrayList<>();
+
+        for (DataLoader.ImportRow<Course> row : rows) {
+            Course c = row.record();
+            String error = row.error();
+            if (error == null && (courses.containsKey(c.code()) || !batch.add(c.code()))) {
+                error = "course with code " + c.code() + " is already present";
+            }
+            if (error != null) rejected.add("line " + row.lineNo() + ": " + error);
+            else accepted.add(c);
         }
 
-        Evaluation e = new Evaluation(studentId, courseCode, semester, numericGrade);
-        grades.put(key, e);
-        DataWriter.appendGrade(baseFolder, e);
+        if (!accepted.isEmpty()) {
+            writer.appendCourses(accepted);
+            for (Course c : accepted) {
+                trackCourse(c);
+            }
+            publish();
+        }
+        if (!accepted.isEmpty()) maybeCompact();
+        printImportSummary(accepted.size(), rejected);
+    }
+
+    private void importGrades(String fileName) {
+        List<DataLoader.ImportRow<Evaluation>> rows = DataLoader.readImport(fileName, "grade", DataLoader::parseGrade);
+        List<Evaluation> accepted = new ArrayList<>();
+        Set<GradeKey> batch = new HashSet<>();
+        List<String> rejected = new ArrayList<>();
+
+        for (DataLoader.ImportRow<Evaluation> row : rows) {
+            String error = row.error() != null ? row.error() : checkImportedGrade(row.record(), batch);
+            if (error != null) rejected.add("line " + row.lineNo() + ": " + error);
+            else accepted.add(row.record());
+        }
+
+        if (!accepted.isEmpty()) {
+            writer.appendGrades(accepted);
+            for (Evaluation e : accepted) {
+                putGrade(e);
+            }
+            publish();
+        }
+        if (!accepted.isEmpty()) maybeCompact();
+        printImportSummary(accepted.size(), rejected);
+    }
+
+    // same rules as addGradeFromCli, with grades accepted earlier in the batch counting as present
+    private String checkImportedGrade(Evaluation e, Set<GradeKey> batch) {
+        Student s = students.peek(e.studentId());
+        if (s == null) return "no student found";
+        if (!courses.containsKey(e.courseCode())) return "no course found";
+
+        GradeKey key = new GradeKey(e.studentId(), e.courseCode());
+        if (hasGrade(e.studentId(), e.courseCode()) || batch.contains(key)) {
+            return "grade for (" + e.studentId() + ", " + e.courseCode() + ") is already present";
+        }
+        if (s.level() == Level.G && Validation.computeCourseLevel(e.courseCode()) == CourseLevel.UNDERGRADUATE) {
+            return "graduate student may not take undergraduate course";
+        }
+        batch.add(key);
+        return null;
+    }
 
-        System.out.println("1 record added");
+    private static void printImportSummary(int accepted, List<String> rejected) {
+        for (int i = 0; i < Math.min(rejected.size(), IMPORT_ERRORS_SHOWN); i++) {
+            System.out.println("error: " + rejected.get(i));
+        }
+        if (rejected.size() > IMPORT_ERRORS_SHOWN) {
+            System.out.println("error: ... " + (rejected.size() - IMPORT_ERRORS_SHOWN) + " more rejected lines");
+        }
+        System.out.println(accepted + (accepted == 1 ? " record" : " records") + " imported, " + rejected.size() + " rejected");
     }
 
     // strict internal add used by load
     private void addGradeInternal(Evaluation e, boolean writeToFile) {
+        checkGrade(e);
+        putGrade(e);
+        if (writeToFile) writer.appendGrade(e);
+    }
+
+    private void checkGrade(Evaluation e) {
         Validation.validateStudentId(e.studentId());
         Validation.validateCourseCode(e.courseCode());
         Validation.validateSemester(e.semester());
         if (e.numericGrade() < 0 || e.numericGrade() > 100) throw new IllegalArgumentException("invalid grade");
 
-        Student s = students.get(e.studentId());
+        Student s = students.peek(e.studentId());
         if (s == null) throw new IllegalArgumentException("grade references missing student: " + e.studentId());
-        Course c = courses.get(e.courseCode());
+        Course c = courses.peek(e.courseCode());
         if (c == null) throw new IllegalArgumentException("grade references missing course: " + e.courseCode());
 
-        GradeKey key = new GradeKey(e.studentId(), e.courseCode());
-        if (grades.containsKey(key)) throw new IllegalArgumentException("duplicate grade key: (" + e.studentId() + ", " + e.courseCode() + ")");
+        if (hasGrade(e.studentId(), e.courseCode())) throw new IllegalArgumentException("duplicate grade key: (" + e.studentId() + ", " + e.courseCode() + ")");
 
         CourseLevel cl = Validation.computeCourseLevel(e.courseCode());
         if (s.level() == Level.G && cl == CourseLevel.UNDERGRADUATE) {
             throw new IllegalArgumentException("invalid grade: graduate student in undergraduate course: " + e.courseCode());
         }
+    }
+
+    private void putGrade(Evaluation e) {
+        grades.add(e);
+        recordStats(e);
+    }
+
+    // the grades of a snapshot, added column by column; each student's totals are summed over its grades in
+    // the order putGrade would add them, so they come out the same
+    private void putGrades(Snapshot.Grades g) {
+        grades.addAll(g);
+
+        String[] table = g.table;
+        Student[] student = new Student[table.length];
+        Course[] course = new Course[table.length];
+        int[] taken = new int[table.length];
+        int[] credits = new int[table.length];
+        double[] points = new double[table.length];
+        for (int i = 0; i < g.size(); i++) {
+            int sr = g.student[i];
+            int cr = g.course[i];
+            Student s = student[sr] != null ? student[sr] : (student[sr] = students.peek(table[sr]));
+            Course c = course[cr] != null ? course[cr] : (course[cr] = courses.peek(table[cr]));
+            if (s == null || c == null) continue;
+
+            LetterGrade lg = grading.letterFor(s.level(), g.grade[i]);
+            taken[sr]++;
+            credits[sr] += c.credits();
+            points[sr] += lg.points() * c.credits();
+        }
+        for (int r = 0; r < table.length; r++) {
+            if (taken[r] > 0) stats.put(table[r], new StudentStats(taken[r], credits[r], points[r]));
+        }
+    }
 
-        grades.put(key, e);
-        if (writeToFile) DataWriter.appendGrade(baseFolder, e);
+    private List<Evaluation> gradesOf(String studentId, Horizon h) {
+        return grades.ofStudent(studentId, h.grades());
     }
 
     // ---------- COMPUTATIONS ----------
-    private static class StudentStats {
-        final int coursesTaken;
-        final int totalCredits;
-        final double gpa;
+    // running totals per student, kept in sync with the grade store so find/report never rescan history;
+    // replaced on every grade, so a reader always gets a complete one
+    private record StudentStats(int coursesTaken, int totalCredits, double totalPoints) {
+        static final StudentStats NONE = new StudentStats(0, 0, 0.0);
 
-        StudentStats(int coursesTaken, int totalCredits, double gpa) {
-            this.coursesTaken = coursesTaken;
-            this.totalCredits = totalCredits;
-            this.gpa = gpa;
+        StudentStats plus(int credits, double points) {
+            return new StudentStats(coursesTaken + 1, totalCredits + credits, totalPoints + points);
         }
+
+        double gpa() {
+            return totalCredits == 0 ? 0.0 : GradingService.round2(totalPoints / totalCredits);
+        }
+    }
+
+    private void trackStudent(Student s) {
+        int pos = students.add(s.id(), s);
+        studentsByLevel.get(s.level()).add(pos);
+        studentNames.add(s.name(), pos);
+        studentSurnames.add(s.surname(), pos);
+        studentEmails.add(s.email(), pos);
+        stats.put(s.id(), StudentStats.NONE);
+        if (!loading) ranking.add(new StudentRow(s, 0, 0.0));
     }
 
-    private StudentStats computeStudentStats(String studentId) {
-        Student s = students.get(studentId);
-        if (s == null) return new StudentStats(0, 0, 0.0);
+    private void trackCourse(Course c) {
+        int pos = courses.add(c.code(), c);
+        courseTitles.add(c.title(), pos);
+    }
+
+    private void recordStats(Evaluation e) {
+        Student s = students.peek(e.studentId());
+        Course c = courses.peek(e.courseCode());
+        if (s == null || c == null) return;
+
+        StudentStats st = stats.get(s.id());
+        if (!loading) ranking.remove(new StudentRow(s, st.totalCredits(), st.gpa()));
 
-        double totalPoints = 0.0;
-        int totalCredits = 0;
-        int coursesTaken = 0;
+        LetterGrade lg = grading.letterFor(s.level(), e.numericGrade());
+        st = st.plus(c.credits(), lg.points() * c.credits());
+        stats.put(s.id(), st);
+
+        if (!loading) ranking.add(new StudentRow(s, st.totalCredits(), st.gpa()));
+    }
+
+    // The totals may already include grades above the horizon; they cover exactly the student's first
+    // coursesTaken grades, so they are only recomputed (in the same order) when that count differs.
+    private StudentStats statsOf(Student s, Horizon h) {
+        StudentStats st = stats.get(s.id());
+        if (st != null && st.coursesTaken() == grades.countForStudent(s.id(), h.grades())) return st;
 
-        for (Evaluation e : grades.values()) {
-            if (!e.studentId().equals(studentId)) continue;
-            Course c = courses.get(e.courseCode());
+        st = StudentStats.NONE;
+        for (Evaluation e : gradesOf(s.id(), h)) {
+            Course c = courses.get(e.courseCode(), h.courses());
             if (c == null) continue;
+            st = st.plus(c.credits(), grading.letterFor(s.level(), e.numericGrade()).points() * c.credits());
+        }
+        return st;
+    }
 
-            LetterGrade lg = grading.letterFor(s.level(), e.numericGrade());
-            totalPoints += lg.points() * c.credits();
-            totalCredits += c.credits();
-            coursesTaken++;
+    private void rebuildRanking() {
+        ranking.clear();
+        for (Student s : students.values(students.visible())) {
+            StudentStats st = stats.get(s.id());
+            ranking.add(new StudentRow(s, st.totalCredits(), st.gpa()));
         }
+    }
 
-        double gpa = totalCredits == 0 ? 0.0 : GradingService.round2(totalPoints / totalCredits);
-        return new StudentStats(coursesTaken, totalCredits, gpa);
+    private static int compareStudentRows(StudentRow a, StudentRow b) {
+        int g = Double.compare(b.gpa(), a.gpa());
+        if (g != 0) return g;
+        int c = Integer.compare(b.totalCredits(), a.totalCredits());
+        if (c != 0) return c;
+        return a.student().id().compareTo(b.student().id());
     }
 
     // ---------- REPORT DATA ----------
     public record StudentRow(Student student, int totalCredits, double gpa) {}
     public record CourseRow(Course course, CourseLevel level, int gradeCount) {}
 
+    public List<String> studentIds() {
+        Validation.requireLoaded(loaded);
+
+        List<Student> visible = students.values(horizon().students());
+        List<String> ids = new ArrayList<>(visible.size());
+        for (Student s : visible) ids.add(s.id());
+        Collections.sort(ids);
+        return ids;
+    }
+
     public List<StudentRow> topStudents(int n) {
         Validation.requireLoaded(loaded);
 
-        List<StudentRow> rows = new ArrayList<>();
-        for (Student s : students.values()) {
-            StudentStats st = computeStudentStats(s.id());
-            rows.add(new StudentRow(s, st.totalCredits, st.gpa));
+        if (pinned != null) {
+            // the ranking only follows the live registry, so a snapshot ranks its own students
+            List<StudentRow> rows = new ArrayList<>();
+            for (Student s : students.values(pinned.students())) {
+                StudentStats st = statsOf(s, pinned);
+                rows.add(new StudentRow(s, st.totalCredits(), st.gpa()));
+            }
+            rows.sort(Registry::compareStudentRows);
+            return new ArrayList<>(rows.subList(0, Math.min(n, rows.size())));
         }
-        rows.sort((a, b) -> {
-            int g = Double.compare(b.gpa(), a.gpa());
-            if (g != 0) return g;
-            int c = Integer.compare(b.totalCredits(), a.totalCredits());
-            if (c != 0) return c;
-            return a.student().id().compareTo(b.student().id());
-        });
 
-        return rows.subList(0, Math.min(n, rows.size()));
+        // the one read that locks, for as long as it takes to copy n rows
+        synchronized (writeLock) {
+            List<StudentRow> rows = new ArrayList<>(Math.min(n, ranking.size()));
+            for (StudentRow r : ranking) {
+                if (rows.size() >= n) break;
+                rows.add(r);
+            }
+            return rows;
+        }
     }
 
     public List<CourseRow> topCourses(int n) {
         Validation.requireLoaded(loaded);
-
-        Map<String, Integer> count = new HashMap<>();
-        for (Evaluation e : grades.values()) {
-            count.merge(e.courseCode(), 1, Integer::sum);
-        }
+        Horizon h = horizon();
 
         List<CourseRow> rows = new ArrayList<>();
-        for (Course c : courses.values()) {
+        for (Course c : courses.values(h.courses())) {
             CourseLevel cl = Validation.computeCourseLevel(c.code());
-            rows.add(new CourseRow(c, cl, count.getOrDefault(c.code(), 0)));
+            rows.add(new CourseRow(c, cl, grades.countForCourse(c.code(), h.grades())));
         }
 
         rows.sort((a, b) -> {
@@ -490,16 +1154,15 @@ public class Registry {
 
     public Transcript transcript(String studentId) {
         Validation.requireLoaded(loaded);
+        Horizon h = horizon();
 
-        Student s = students.get(studentId);
+        Student s = students.get(studentId, h.students());
         if (s == null) return null;
 
         Map<String, List<TranscriptLine>> bySem = new HashMap<>();
 
-        for (Evaluation e : grades.values()) {
-            if (!e.studentId().equals(studentId)) continue;
-
-            Course c = courses.get(e.courseCode());
+        for (Evaluation e : gradesOf(studentId, h)) {
+            Course c = courses.get(e.courseCode(), h.courses());
             if (c == null) continue;
 
             LetterGrade lg = grading.letterFor(s.level(), e.numericGrade());
@@ -0,0 +1,267 @@
+package unyt.registry;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// JSON over HTTP for an already loaded registry, next to the CLI:
+//
+//   GET  /find/student?id=            GET  /report/topStudents?n=
+//   GET  /find/course?code=           GET  /report/topCourses?n=
+//   GET  /find/grade?studentID=&courseCode=
+//   GET  /query/<entity>?criteria=    GET  /report/transcript?id=
+//   POST /add/<entity>                (body: the values of the CLI's add command)
+//
+// Reads never lock the registry, so requests are handled concurrently; adds are serialized by the
+// registry. Errors are {"error": "..."} with status 400, or 404 for a record that does not exist.
+// Responses are rendered in full before they are sent, so a large query should be paged with limit=.
+//
+// There is no authentication, and /add writes to the data files, so the server listens on the loopback
+// interface unless the caller names another address. The JDK server reads sun.net.httpserver.nodelay once
+// per process; Main sets it, and other embedders should too (see Main.handleServe).
+public class RegistryServer {
+    private static final int BACKLOG = 1024;
+
+    private final Registry registry;
+    private final HttpServer server;
+    private final ExecutorService handlers;
+
+    // listens on the loopback interface only
+    public RegistryServer(Registry registry, int port) {
+        this(registry, InetAddress.getLoopbackAddress(), port);
+    }
+
+    public RegistryServer(Registry registry, InetAddress host, int port) {
+        Validation.requireLoaded(registry.isLoaded());
+        if (port < 0 || port > 65535) throw new IllegalArgumentException("invalid port");
+
+        this.registry = registry;
+        try {
+            server = HttpServer.create(new InetSocketAddress(host, port), BACKLOG);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot listen on port " + port);
+        }
+        handlers = handlerThreads();
+        server.setExecutor(handlers);
+        server.createContext("/find/", this::find);
+        server.createContext("/query/", this::query);
+        server.createContext("/add/", this::add);
+        server.createContext("/report/", this::report);
+        server.start();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        handlers.shutdown();
+        try {
+            handlers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // A virtual thread per exchange where the runtime has them (Java 21+); otherwise a fixed pool, which
+    // is enough as long as handlers never wait on anything but the client.
+    private static ExecutorService handlerThreads() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadNo = new AtomicInteger(1);
+            return Executors.newFixedThreadPool(Math.max(4, 2 * Runtime.getRuntime().availableProcessors()), r -> {
+                Thread t = new Thread(r, "http-" + threadNo.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // ---------- HANDLERS ----------
+
+    private interface Body {
+        // the response status; the JSON body goes to out
+        int write(Writer out) throws IOException;
+    }
+
+    private void find(HttpExchange ex) throws IOException {
+        respond(ex, "GET", out -> {
+            Map<String, String> params = params(ex);
+            switch (entity(ex, "/find/")) {
+                case "student" -> {
+                    Registry.StudentDetails d = registry.findStudent(required(params, "id"));
+                    if (d == null) return error(out, 404, "no student found");
+                    Student s = d.student();
+                    out.write("{\"id\": ");
+                    JsonWriter.q(out, s.id());
+                    out.write(", \"name\": ");
+                    JsonWriter.q(out, s.name());
+                    out.write(", \"surname\": ");
+                    JsonWriter.q(out, s.surname());
+                    out.write(", \"email\": ");
+                    JsonWriter.q(out, s.email());
+                    out.write(", \"level\": ");
+                    JsonWriter.q(out, s.level().label());
+                    out.write(", \"courses\": " + d.coursesTaken() + ", \"credits\": " + d.totalCredits() + ", \"gpa\": ");
+                    TwoDecimals.appendTo(out, d.gpa());
+                    out.write("}\n");
+                }
+                case "course" -> {
+                    Course c = registry.findCourse(required(params, "code"));
+                    if (c == null) return error(out, 404, "no course found");
+                    out.write("{\"code\": ");
+                    JsonWriter.q(out, c.code());
+                    out.write(", \"title\": ");
+                    JsonWriter.q(out, c.title());
+                    out.write(", \"credits\": " + c.credits() + ", \"level\": ");
+                    JsonWriter.q(out, Validation.computeCourseLevel(c.code()).label());
+                    out.write("}\n");
+                }
+                case "grade" -> {
+                    Registry.GradeDetails d = registry.findGrade(required(params, "studentID"), required(params, "courseCode"));
+                    if (d == null) return error(out, 404, "no grade found");
+                    out.write("{\"studentID\": ");
+                    JsonWriter.q(out, d.student().id());
+                    out.write(", \"courseCode\": ");
+                    JsonWriter.q(out, d.course().code());
+                    out.write(", \"semester\": ");
+                    JsonWriter.q(out, d.semester());
+                    out.write(", \"grade\": " + d.numericGrade() + ", \"letterGrade\": ");
+                    JsonWriter.q(out, d.letterGrade());
+                    out.write("}\n");
+                }
+                default -> {
+                    return error(out, 404, "no such entity");
+                }
+            }
+            return 200;
+        });
+    }
+
+    private void query(HttpExchange ex) throws IOException {
+        respond(ex, "GET", out -> {
+            String criteria = params(ex).getOrDefault("criteria", "");
+            registry.queryJsonTo(entity(ex, "/query/"), criteria, out);
+            return 200;
+        });
+    }
+
+    private void add(HttpExchange ex) throws IOException {
+        respond(ex, "POST", out -> {
+            String values = new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8).trim();
+            String result = switch (entity(ex, "/add/")) {
+                case "student" -> registry.addStudent(values);
+                case "course" -> registry.addCourse(values);
+                case "grade" -> registry.addGrade(values);
+                default -> "error: no such entity";
+            };
+            if (result.startsWith("error: ")) return error(out, 400, result.substring("error: ".length()));
+            out.write("{\"result\": ");
+            JsonWriter.q(out, result);
+            out.write("}\n");
+            return 200;
+        });
+    }
+
+    // the report's JSON document itself rather than a file on the server; n is capped at 100 as in the CLI
+    private void report(HttpExchange ex) throws IOException {
+        respond(ex, "GET", out -> {
+            Map<String, String> params = params(ex);
+            switch (entity(ex, "/report/")) {
+                case "topStudents" -> JsonWriter.INSTANCE.topStudents(out, registry.topStudents(limit(params)));
+                case "topCourses" -> JsonWriter.INSTANCE.topCourses(out, registry.topCourses(limit(params)));
+                case "transcript" -> {
+                    Registry.Transcript t = registry.transcript(required(params, "id"));
+                    if (t == null) return error(out, 404, "no student found for given id");
+                    JsonWriter.INSTANCE.transcript(out, t);
+                }
+                default -> {
+                    return error(out, 404, "unknown report type");
+                }
+            }
+            return 200;
+        });
+    }
+
+    // ---------- HELPERS ----------
+
+    private static void respond(HttpExchange ex, String method, Body body) throws IOException {
+        StringWriter out = new StringWriter();
+        int status;
+        try {
+            status = ex.getRequestMethod().equals(method) ? body.write(out) : error(out, 405, "use " + method);
+        } catch (IllegalArgumentException e) {
+            out.getBuffer().setLength(0);
+            status = error(out, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            out.getBuffer().setLength(0);
+            status = error(out, 500, "unexpected failure: " + e.getMessage());
+        }
+
+        byte[] bytes = out.toString().getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private static int error(Writer out, int status, String message) throws IOException {
+        out.write("{\"error\": ");
+        JsonWriter.q(out, message);
+        out.write("}\n");
+        return status;
+    }
+
+    // the path below prefix, e.g. "student" for /find/student
+    private static String entity(HttpExchange ex, String prefix) {
+        String path = ex.getRequestURI().getPath();
+        return path.length() > prefix.length() ? path.substring(prefix.length()) : "";
+    }
+
+    private static Map<String, String> params(HttpExchange ex) {
+        Map<String, String> params = new HashMap<>();
+        String raw = ex.getRequestURI().getRawQuery();
+        if (raw == null) return params;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String v = params.get(name);
+        if (v == null || v.isBlank()) throw new IllegalArgumentException("missing " + name);
+        return v.trim();
+    }
+
+    private static int limit(Map<String, String> params) {
+        int n;
+        try {
+            n = Integer.parseInt(required(params, "n"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid n");
+        }
+        if (n < 0) throw new IllegalArgumentException("invalid n");
+        return Math.min(n, 100);
+    }
+}
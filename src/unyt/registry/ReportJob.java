@@ -0,0 +1,57 @@
+package unyt.registry;
+
+// One report submitted to ReportService's worker pool, with the timings shown by 'report status'.
+public class ReportJob {
+    public enum State { QUEUED, RUNNING, FINISHED, FAILED }
+
+    private final int id;
+    private final String description;
+    private final long submittedAt = System.nanoTime();
+
+    private volatile State state = State.QUEUED;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile String error;
+
+    ReportJob(int id, String description) {
+        this.id = id;
+        this.description = description;
+    }
+
+    public int id() { return id; }
+    public String description() { return description; }
+    public State state() { return state; }
+
+    boolean done() {
+        return state == State.FINISHED || state == State.FAILED;
+    }
+
+    void run(Runnable work) {
+        startedAt = System.nanoTime();
+        state = State.RUNNING;
+        try {
+            work.run();
+            finishedAt = System.nanoTime();
+            state = State.FINISHED;
+        } catch (RuntimeException e) {
+            error = e.getMessage();
+            finishedAt = System.nanoTime();
+            state = State.FAILED;
+        }
+    }
+
+    public String statusLine() {
+        long now = System.nanoTime();
+        String head = "#" + id + " " + description + ": ";
+        return switch (state) {
+            case QUEUED -> head + "queued for " + millis(now - submittedAt) + " ms";
+            case RUNNING -> head + "running for " + millis(now - startedAt) + " ms";
+            case FINISHED -> head + "finished in " + millis(finishedAt - startedAt) + " ms";
+            case FAILED -> head + "failed after " + millis(finishedAt - startedAt) + " ms: " + error;
+        };
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000;
+    }
+}
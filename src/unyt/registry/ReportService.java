@@ -1,13 +1,67 @@
 package unyt.registry;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
 
 public class ReportService {
+    // transcripts rendered concurrently before being appended to a combined report
+    private static final int TRANSCRIPT_BATCH = 1024;
+    // transcripts one export task renders or writes
+    private static final int EXPORT_SLICE = 64;
+
+    private static final int WORKERS = 2;
+    private static final int QUEUE_CAPACITY = 16;
+    // finished and failed jobs kept for 'report status', besides the queued and running ones
+    private static final int FINISHED_JOBS_KEPT = 32;
+
     private final Registry registry;
 
+    // Reports are written off the REPL thread. Everything a job reads is taken before it is submitted:
+    // the rows of top-N reports and single transcripts, or a Registry.reportSnapshot() for bulk exports.
+    // The CLI still answers "Report generated." once a job is accepted; whether it is queued, running,
+    // done or failed is only shown by 'report status'.
+    private final ThreadPoolExecutor workers;
+    // Bulk transcript exports split their students over these threads rather than a parallel stream, so
+    // they do not compete with everything else in the process that uses the common ForkJoinPool. Only
+    // jobs submit to them, and export tasks never wait on each other.
+    private final ExecutorService exporters;
+    // guarded by itself
+    private final List<ReportJob> jobs = new ArrayList<>();
+    private final AtomicInteger nextJobId = new AtomicInteger(1);
+
     public ReportService(Registry registry) {
         this.registry = registry;
+
+        this.workers = new ThreadPoolExecutor(WORKERS, WORKERS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), daemonThreads("report-"));
+        this.exporters = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                daemonThreads("report-export-"));
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadNo = new AtomicInteger(1);
+        return r -> {
+            Thread t = new Thread(r, prefix + threadNo.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
     }
 
     public boolean reportTopStudents(int n, String fileName) {
@@ -21,7 +75,9 @@ public class ReportService {
         if (n < 0) throw new IllegalArgumentException("invalid n");
 
         List<Registry.StudentRow> rows = registry.topStudents(n);
-        writeByExt(fileName, () -> CsvWriter.writeTopStudents(Path.of(fileName), rows), () -> JsonWriter.writeTopStudents(Path.of(fileName), rows), () -> XmlWriter.writeTopStudents(Path.of(fileName), rows));
+        ReportWriter format = ReportWriter.forFile(fileName);
+        submit("topStudents " + n + " " + fileName, "topStudents." + extension(fileName),
+                () -> ReportWriter.toFile(Path.of(fileName), "topStudents", rows.size(), out -> format.topStudents(out, rows)));
         return limited;
     }
 
@@ -36,7 +92,9 @@ public class ReportService {
         if (n < 0) throw new IllegalArgumentException("invalid n");
 
         List<Registry.CourseRow> rows = registry.topCourses(n);
-        writeByExt(fileName, () -> CsvWriter.writeTopCourses(Path.of(fileName), rows), () -> JsonWriter.writeTopCourses(Path.of(fileName), rows), () -> XmlWriter.writeTopCourses(Path.of(fileName), rows));
+        ReportWriter format = ReportWriter.forFile(fileName);
+        submit("topCourses " + n + " " + fileName, "topCourses." + extension(fileName),
+                () -> ReportWriter.toFile(Path.of(fileName), "topCourses", rows.size(), out -> format.topCourses(out, rows)));
         return limited;
     }
 
@@ -49,16 +107,153 @@ public class ReportService {
             return;
         }
 
-        writeByExt(fileName, () -> CsvWriter.writeTranscript(Path.of(fileName), t), () -> JsonWriter.writeTranscript(Path.of(fileName), t), () -> XmlWriter.writeTranscript(Path.of(fileName), t));
+        ReportWriter format = ReportWriter.forFile(fileName);
+        submit("transcript " + studentId + " " + fileName, "transcript." + extension(fileName),
+                () -> ReportWriter.toFile(Path.of(fileName), "transcript", lines(t), out -> format.transcript(out, t)));
 
         System.out.println("Report generated.");
     }
 
-    private void writeByExt(String fileName, Runnable csv, Runnable json, Runnable xml) {
-        String lower = fileName.toLowerCase();
-        if (lower.endsWith(".csv")) csv.run();
-        else if (lower.endsWith(".json")) json.run();
-        else if (lower.endsWith(".xml")) xml.run();
-        else throw new IllegalArgumentException("unsupported report format");
+    // Every student's transcript, either one file per student (<id>.<format>) in a folder or one combined
+    // document when target already ends in .<format>. Transcripts are built from the per-student grade
+    // index and rendered in parallel on the export threads; the combined file is written in batches so
+    // memory stays bounded.
+    // The job works on a snapshot, so students and grades added after submission are not included.
+    public int reportTranscripts(String target, String formatName) {
+        Validation.requireLoaded(registry.isLoaded());
+
+        ReportWriter format = ReportWriter.forFormat(formatName);
+        String ext = "." + formatName.toLowerCase();
+        Registry snapshot = registry.reportSnapshot();
+        List<String> ids = snapshot.studentIds();
+
+        if (target.toLowerCase().endsWith(ext)) {
+            submit("transcripts " + target + " " + formatName, "transcripts." + formatName.toLowerCase(),
+                    () -> ReportWriter.toFile(Path.of(target), "transcripts", ids.size(),
+                            out -> writeCombined(out, format, snapshot, ids)));
+        } else {
+            Path folder = Path.of(target);
+            try {
+                Files.createDirectories(folder);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("cannot create report folder");
+            }
+            submit("transcripts " + target + " " + formatName, "transcripts." + formatName.toLowerCase(),
+                    () -> inParallel(ids.size(), i -> {
+                        String id = ids.get(i);
+                        Registry.Transcript t = snapshot.transcript(id);
+                        ReportWriter.toFile(folder.resolve(id + ext), "transcript", lines(t), out -> format.transcript(out, t));
+                    }));
+        }
+        return ids.size();
+    }
+
+    // ---------- JOBS ----------
+
+    // the time a job takes to write its file is recorded as job.<type>.<format>
+    private void submit(String description, String metric, Runnable work) {
+        ReportJob job = new ReportJob(nextJobId.getAndIncrement(), description);
+        Metrics metrics = registry.metrics();
+        try {
+            workers.execute(() -> {
+                long start = System.nanoTime();
+                job.run(work);
+                metrics.record("job." + metric, System.nanoTime() - start, job.state() == ReportJob.State.FAILED);
+            });
+        } catch (RejectedExecutionException e) {
+            throw new IllegalArgumentException("report queue is full");
+        }
+        track(job);
+    }
+
+    // adds job to the status list and drops the oldest finished jobs beyond FINISHED_JOBS_KEPT; queued and
+    // running jobs are bounded by the pool, so the list is too
+    private void track(ReportJob job) {
+        synchronized (jobs) {
+            jobs.add(job);
+            int finished = 0;
+            for (ReportJob j : jobs) {
+                if (j.done()) finished++;
+            }
+            for (Iterator<ReportJob> it = jobs.iterator(); it.hasNext() && finished > FINISHED_JOBS_KEPT; ) {
+                if (it.next().done()) {
+                    it.remove();
+                    finished--;
+                }
+            }
+        }
+    }
+
+    // runs task for every index in [0, n) on the export threads and returns once all have run; the first
+    // failure cancels the slices that have not started and is rethrown
+    private void inParallel(int n, IntConsumer task) {
+        List<Future<?>> slices = new ArrayList<>();
+        for (int from = 0; from < n; from += EXPORT_SLICE) {
+            int lo = from;
+            int hi = Math.min(n, from + EXPORT_SLICE);
+            slices.add(exporters.submit(() -> {
+                for (int i = lo; i < hi; i++) task.accept(i);
+            }));
+        }
+        try {
+            for (Future<?> f : slices) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalArgumentException("report interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // a no-op once every slice has run
+            for (Future<?> f : slices) f.cancel(false);
+        }
+    }
+
+    private static int lines(Registry.Transcript t) {
+        int n = 0;
+        for (Registry.TranscriptSemester sem : t.semesters()) n += sem.lines().size();
+        return n;
+    }
+
+    private static String extension(String fileName) {
+        return fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase();
+    }
+
+    public List<ReportJob> jobs() {
+        synchronized (jobs) {
+            return List.copyOf(jobs);
+        }
+    }
+
+    // waits for queued and running reports, e.g. before the program exits
+    public void shutdown() {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exporters.shutdown();
+    }
+
+    private void writeCombined(Writer out, ReportWriter format, Registry registry, List<String> ids) throws IOException {
+        format.transcriptsStart(out);
+        for (int from = 0; from < ids.size(); from += TRANSCRIPT_BATCH) {
+            int first = from;
+            String[] rendered = new String[Math.min(TRANSCRIPT_BATCH, ids.size() - from)];
+            inParallel(rendered.length, i -> rendered[i] = render(format, registry.transcript(ids.get(first + i)), first + i == 0));
+            for (String s : rendered) out.write(s);
+        }
+        format.transcriptsEnd(out, ids.size());
+    }
+
+    private static String render(ReportWriter format, Registry.Transcript t, boolean first) {
+        StringWriter sw = new StringWriter();
+        try {
+            format.transcriptsEntry(sw, t, first);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot write report file");
+        }
+        return sw.toString();
     }
 }
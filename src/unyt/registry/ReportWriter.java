@@ -0,0 +1,82 @@
+package unyt.registry;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// One report format. Implementations write row by row to the given Writer and never buffer a whole report.
+public interface ReportWriter {
+
+    void topStudents(Writer out, List<Registry.StudentRow> rows) throws IOException;
+
+    void topCourses(Writer out, List<Registry.CourseRow> rows) throws IOException;
+
+    void transcript(Writer out, Registry.Transcript t) throws IOException;
+
+    // a combined document of many transcripts: start, one entry per student, end
+    void transcriptsStart(Writer out) throws IOException;
+
+    void transcriptsEntry(Writer out, Registry.Transcript t, boolean first) throws IOException;
+
+    void transcriptsEnd(Writer out, int count) throws IOException;
+
+    static ReportWriter forFile(String fileName) {
+        return forFormat(fileName.substring(fileName.lastIndexOf('.') + 1));
+    }
+
+    static ReportWriter forFormat(String format) {
+        return switch (format.toLowerCase()) {
+            case "csv" -> CsvWriter.INSTANCE;
+            case "json" -> JsonWriter.INSTANCE;
+            case "xml" -> XmlWriter.INSTANCE;
+            default -> throw new IllegalArgumentException("unsupported report format");
+        };
+    }
+
+    interface Body {
+        void write(Writer out) throws IOException;
+    }
+
+    // toFile as a WriteReport event; rows is what the report lists (see Events.WriteReport)
+    static void toFile(Path file, String report, int rows, Body body) {
+        Events.WriteReport event = new Events.WriteReport();
+        event.begin();
+        try {
+            toFile(file, body);
+        } catch (RuntimeException e) {
+            event.failure = e.getMessage();
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                String name = file.getFileName().toString();
+                event.report = report;
+                event.format = name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+                event.file = file.toString();
+                event.rows = rows;
+                try {
+                    event.bytes = Files.size(file);
+                } catch (IOException e) {
+                    event.bytes = -1;
+                }
+                event.commit();
+            }
+        }
+    }
+
+    static void toFile(Path file, Body body) {
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE),
+                StandardCharsets.UTF_8), 1 << 16)) {
+            body.write(w);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot write report file");
+        }
+    }
+}
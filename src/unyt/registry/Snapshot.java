@@ -0,0 +1,288 @@
+package unyt.registry;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Binary copy of a loaded folder (registry.snap) that is memory-mapped on the next start instead of
+// parsing and validating the text files. Every distinct string is stored once in a table and records
+// refer to it by index; grades are stored column by column as primitive arrays:
+//
+//   magic, version, then size and CRC32 of students.txt/courses.txt/grades.txt when written, then the
+//   CRC32 of everything after the header
+//   strings:  count, then (byte length, UTF-8 bytes) each
+//   students: count, then (id, name, surname, email) string indexes and a level byte each
+//   courses:  count, then (code, title) string indexes and credits each
+//   grades:   count, then all student indexes, all course indexes, all semester indexes, all grades
+//
+// A snapshot is only used while all three text files still have the size and checksum it recorded, so
+// any edit to them, or appends made by a run that did not write a new snapshot, send the next start back
+// to the text files; file times are not trusted, as copies and editors may keep them. The body is checked
+// against its own CRC32 before it is decoded, and every count is checked against the bytes left, so a
+// damaged snapshot is ignored rather than failing the load.
+//
+// Only the records are stored. The structures Registry derives from them (grade index, trigram postings,
+// totals, ranking) are rebuilt on every load, which is most of what a snapshot start still costs.
+final class Snapshot {
+    private Snapshot() {}
+
+    static final String FILE_NAME = "registry.snap";
+    private static final int MAGIC = 0x55525347; // "URSG"
+    private static final int VERSION = 3;
+    private static final String[] DATA_FILES = {"students.txt", "courses.txt", "grades.txt"};
+    private static final int BODY_CRC = 8 + DATA_FILES.length * 12; // offset of the body checksum
+
+    // -Dregistry.snapshot=false turns snapshots off, for both reading and writing
+    static boolean enabled() {
+        return !"false".equalsIgnoreCase(System.getProperty("registry.snapshot", "true"));
+    }
+
+    // ---------- WRITE ----------
+
+    static void write(Path folder, Collection<Student> students, Collection<Course> courses, Collection<Evaluation> grades) {
+        Map<String, Integer> index = new HashMap<>();
+        List<String> table = new ArrayList<>();
+
+        int[] studentRefs = new int[students.size() * 4];
+        int k = 0;
+        for (Student s : students) {
+            studentRefs[k++] = ref(s.id(), index, table);
+            studentRefs[k++] = ref(s.name(), index, table);
+            studentRefs[k++] = ref(s.surname(), index, table);
+            studentRefs[k++] = ref(s.email() == null ? "" : s.email(), index, table);
+        }
+        int[] courseRefs = new int[courses.size() * 2];
+        k = 0;
+        for (Course c : courses) {
+            courseRefs[k++] = ref(c.code(), index, table);
+            courseRefs[k++] = ref(c.title(), index, table);
+        }
+        int n = grades.size();
+        int[] gStudent = new int[n];
+        int[] gCourse = new int[n];
+        int[] gSemester = new int[n];
+        byte[] gValue = new byte[n];
+        k = 0;
+        for (Evaluation e : grades) {
+            gStudent[k] = ref(e.studentId(), index, table);
+            gCourse[k] = ref(e.courseCode(), index, table);
+            gSemester[k] = ref(e.semester(), index, table);
+            gValue[k] = (byte) e.numericGrade();
+            k++;
+        }
+
+        Path tmp = folder.resolve(FILE_NAME + ".tmp");
+        try {
+            CRC32 body = new CRC32();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Files.newOutputStream(tmp), body), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                for (String f : DATA_FILES) {
+                    out.writeLong(Files.size(folder.resolve(f)));
+                    out.writeInt((int) checksum(folder.resolve(f)));
+                }
+                out.writeInt(0); // the body checksum, filled in below
+                out.flush();
+                body.reset();
+
+                out.writeInt(table.size());
+                for (String s : table) {
+                    byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(b.length);
+                    out.write(b);
+                }
+
+                out.writeInt(students.size());
+                k = 0;
+                for (Student s : students) {
+                    for (int i = 0; i < 4; i++) out.writeInt(studentRefs[k++]);
+                    out.writeByte(s.level().ordinal());
+                }
+
+                out.writeInt(courses.size());
+                k = 0;
+                for (Course c : courses) {
+                    out.writeInt(courseRefs[k++]);
+                    out.writeInt(courseRefs[k++]);
+                    out.writeInt(c.credits());
+                }
+
+                out.writeInt(n);
+                for (int v : gStudent) out.writeInt(v);
+                for (int v : gCourse) out.writeInt(v);
+                for (int v : gSemester) out.writeInt(v);
+                out.write(gValue);
+            }
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ch.write(ByteBuffer.allocate(4).putInt(0, (int) body.getValue()), BODY_CRC);
+            }
+            Files.move(tmp, folder.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // nothing else to clean up
+            }
+            throw new IllegalArgumentException("cannot write snapshot");
+        }
+    }
+
+    private static int ref(String s, Map<String, Integer> index, List<String> table) {
+        Integer i = index.get(s);
+        if (i != null) return i;
+        index.put(s, table.size());
+        table.add(s);
+        return table.size() - 1;
+    }
+
+    // CRC32 of the whole file
+    private static long checksum(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (ch.read(buf) >= 0) {
+                buf.flip();
+                crc.update(buf);
+                buf.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    // ---------- READ ----------
+
+    // the snapshot's contents, or null when there is none or it is stale or unreadable
+    static DataLoader.LoadResult read(Path folder) {
+        Path file = folder.resolve(FILE_NAME);
+        try {
+            if (!Files.isRegularFile(file)) return null;
+
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                if (buf.getInt() != MAGIC || buf.getInt() != VERSION) return null;
+                // every size first, so a file that grew costs no checksum
+                int header = buf.position();
+                for (String f : DATA_FILES) {
+                    if (buf.getLong() != Files.size(folder.resolve(f))) return null;
+                    buf.getInt();
+                }
+                buf.position(header);
+                for (String f : DATA_FILES) {
+                    buf.getLong();
+                    if (buf.getInt() != (int) checksum(folder.resolve(f))) return null;
+                }
+                int bodyCrc = buf.getInt();
+                CRC32 crc = new CRC32();
+                crc.update(buf.slice());
+                if (bodyCrc != (int) crc.getValue()) return null;
+                return decode(buf, folder);
+            }
+        } catch (IOException | RuntimeException e) {
+            // a damaged body that still matches its checksum: any out of range count or index ends up here
+            return null;
+        }
+    }
+
+    // a count of entries that take at least minBytes each, which must fit in what is left of buf
+    private static int count(ByteBuffer buf, int minBytes) {
+        int n = buf.getInt();
+        if (n < 0 || n > buf.remaining() / minBytes) throw new IllegalArgumentException("damaged snapshot");
+        return n;
+    }
+
+    private static DataLoader.LoadResult decode(MappedByteBuffer buf, Path folder) {
+        String[] table = new String[count(buf, 4)];
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < table.length; i++) {
+            int len = buf.getInt();
+            if (len > scratch.length) scratch = new byte[Math.max(len, scratch.length * 2)];
+            buf.get(scratch, 0, len);
+            table[i] = new String(scratch, 0, len, StandardCharsets.UTF_8);
+        }
+
+        Level[] levels = Level.values();
+        int studentCount = count(buf, 17);
+        List<Student> students = new ArrayList<>(studentCount);
+        for (int i = 0; i < studentCount; i++) {
+            String id = table[buf.getInt()];
+            String name = table[buf.getInt()];
+            String surname = table[buf.getInt()];
+            String email = table[buf.getInt()];
+            students.add(new Student(id, name, surname, email, levels[buf.get()]));
+        }
+
+        int courseCount = count(buf, 12);
+        List<Course> courses = new ArrayList<>(courseCount);
+        for (int i = 0; i < courseCount; i++) {
+            String code = table[buf.getInt()];
+            String title = table[buf.getInt()];
+            courses.add(new Course(code, title, buf.getInt()));
+        }
+
+        int n = count(buf, 13);
+        int studentCol = buf.position();
+        int courseCol = studentCol + 4 * n;
+        int semesterCol = courseCol + 4 * n;
+        int gradeCol = semesterCol + 4 * n;
+        if (gradeCol + n != buf.limit()) return null;
+
+        Grades grades = new Grades(table, n);
+        IntBuffer ints = buf.asIntBuffer();
+        ints.get(grades.student).get(grades.course).get(grades.semester);
+        buf.position(gradeCol).get(grades.grade);
+        for (int i = 0; i < n; i++) {
+            if (Integer.compareUnsigned(grades.student[i], table.length) >= 0
+                    || Integer.compareUnsigned(grades.course[i], table.length) >= 0
+                    || Integer.compareUnsigned(grades.semester[i], table.length) >= 0) {
+                return null;
+            }
+        }
+        return new DataLoader.LoadResult(students, courses, grades, folder, true);
+    }
+
+    // The grades of a snapshot as stored: the string table and one array per column, each string as its
+    // index in the table. Registry adds them to its GradeStore column by column; as a list, an Evaluation
+    // is only created for the row that is read.
+    static final class Grades extends AbstractList<Evaluation> {
+        final String[] table;
+        final int[] student;
+        final int[] course;
+        final int[] semester;
+        final byte[] grade;
+
+        private Grades(String[] table, int n) {
+            this.table = table;
+            student = new int[n];
+            course = new int[n];
+            semester = new int[n];
+            grade = new byte[n];
+        }
+
+        @Override
+        public Evaluation get(int i) {
+            Objects.checkIndex(i, grade.length);
+            return new Evaluation(table[student[i]], table[course[i]], table[semester[i]], grade[i]);
+        }
+
+        @Override
+        public int size() {
+            return grade.length;
+        }
+    }
+}
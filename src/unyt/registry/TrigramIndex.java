@@ -0,0 +1,47 @@
+package unyt.registry;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Inverted index from every 3-character substring of a field to the positions (in a RecordTable) of the
+// records containing it. A substring query of 3+ characters can only match records that appear in the
+// posting list of each of its trigrams, so the shortest such list is a (usually small) candidate set that
+// still has to be verified. Postings are append-only, so readers bounded by a record count need no lock.
+final class TrigramIndex<T> {
+    private final RecordTable<T> table;
+    private final ConcurrentHashMap<Long, IntLog> postings = new ConcurrentHashMap<>();
+
+    TrigramIndex(RecordTable<T> table) {
+        this.table = table;
+    }
+
+    void add(String value, int position) {
+        for (int i = 0; i + 3 <= value.length(); i++) {
+            IntLog list = postings.computeIfAbsent(key(value, i), k -> new IntLog());
+            // records are added one at a time, so a repeated trigram of the same record is always the last entry
+            if (list.last() != position) list.add(position);
+        }
+    }
+
+    void clear() {
+        postings.clear();
+    }
+
+    // records among the first limit that may contain the substring, or null when it is too short to use
+    // the index
+    List<T> candidates(String substring, int limit) {
+        if (substring.length() < 3) return null;
+
+        IntLog best = null;
+        for (int i = 0; i + 3 <= substring.length(); i++) {
+            IntLog list = postings.get(key(substring, i));
+            if (list == null) return List.of();
+            if (best == null || list.size() < best.size()) best = list;
+        }
+        return best.view(limit, table::at);
+    }
+
+    private static long key(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+}
@@ -0,0 +1,57 @@
+package unyt.registry;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+
+// Fixed-point "%.2f" for GPAs and grade points without Formatter, giving the same text as
+// String.format(Locale.US, "%.2f", x) for every value. Formatter rounds the decimal digits of
+// Double.toString(x) half up, not the binary value (1.005 prints 1.01), and keeps the sign of any
+// negative value, also one that rounds to zero (-0.001 and -0.0 print -0.00).
+public final class TwoDecimals {
+    private TwoDecimals() {}
+
+    // beyond this x * 100 no longer fits a long
+    private static final double LIMIT = 9.0e16;
+
+    public static StringBuilder append(StringBuilder sb, double x) {
+        try {
+            return (StringBuilder) appendTo(sb, x);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringBuilder never throws
+        }
+    }
+
+    public static Appendable appendTo(Appendable out, double x) throws IOException {
+        if (!(Math.abs(x) < LIMIT)) return out.append(String.format(Locale.US, "%.2f", x));
+
+        if (x < 0 || (x == 0 && 1 / x < 0)) {
+            out.append('-');
+            x = -x;
+        }
+        double scaled = x * 100.0;
+        long k;
+        if (Math.abs(scaled - Math.floor(scaled) - 0.5) > 4 * Math.ulp(scaled)) {
+            k = Math.round(scaled);
+        } else {
+            // near a tie the product may round to the other side of it than the decimal digits do
+            k = new BigDecimal(Double.toString(x)).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        }
+        long whole = k / 100;
+        int frac = (int) (k % 100);
+
+        long d = 1;
+        while (whole / d >= 10) d *= 10;
+        for (; d > 0; d /= 10) out.append((char) ('0' + whole / d % 10));
+
+        out.append('.');
+        out.append((char) ('0' + frac / 10));
+        out.append((char) ('0' + frac % 10));
+        return out;
+    }
+
+    public static String format(double x) {
+        return append(new StringBuilder(8), x).toString();
+    }
+}
@@ -8,8 +8,10 @@ public final class Validation {
     }
 
     public static void validateStudentId(String id) {
-        if (id == null || id.trim().isEmpty()) throw new IllegalArgumentException("missing student ID");
-        if (!id.trim().matches("\\d+")) throw new IllegalArgumentException("invalid student ID");
+        if (id == null) throw new IllegalArgumentException("missing student ID");
+        int s = trimStart(id), e = trimEnd(id, s);
+        if (s == e) throw new IllegalArgumentException("missing student ID");
+        if (!allDigits(id, s, e)) throw new IllegalArgumentException("invalid student ID");
     }
 
     public static void validateNonEmpty(String v, String fieldName) {
@@ -36,16 +38,15 @@ public final class Validation {
     }
 
     public static void validateCourseCode(String code) {
-        if (code == null || code.trim().isEmpty()) throw new IllegalArgumentException("missing course code");
-        String c = code.trim();
-        if (!c.matches("[A-Z]{2,4}\\d{3}")) throw new IllegalArgumentException("invalid course code");
+        if (code == null) throw new IllegalArgumentException("missing course code");
+        int s = trimStart(code), e = trimEnd(code, s);
+        if (s == e) throw new IllegalArgumentException("missing course code");
+        if (!isCourseCode(code, s, e)) throw new IllegalArgumentException("invalid course code");
     }
 
     public static CourseLevel computeCourseLevel(String code) {
         validateCourseCode(code);
-        String c = code.trim();
-        String num = c.substring(c.length() - 3);
-        char first = num.charAt(0);
+        char first = code.charAt(trimEnd(code, trimStart(code)) - 3);
         if (first >= '1' && first <= '4') return CourseLevel.UNDERGRADUATE;
         if (first >= '5' && first <= '9') return CourseLevel.GRADUATE;
         throw new IllegalArgumentException("invalid course code");
@@ -64,9 +65,10 @@ public final class Validation {
     }
 
     public static void validateSemester(String semester) {
-        if (semester == null || semester.trim().isEmpty()) throw new IllegalArgumentException("missing semester");
-        String s = semester.trim();
-        if (!s.matches("(Spring|Fall)\\d{4}")) throw new IllegalArgumentException("invalid semester");
+        if (semester == null) throw new IllegalArgumentException("missing semester");
+        int s = trimStart(semester), e = trimEnd(semester, s);
+        if (s == e) throw new IllegalArgumentException("missing semester");
+        if (!isSemester(semester, s, e)) throw new IllegalArgumentException("invalid semester");
     }
 
     public static int parseNumericGrade(String s) {
@@ -80,4 +82,51 @@ public final class Validation {
         if (g < 0 || g > 100) throw new IllegalArgumentException("invalid grade");
         return g;
     }
+
+    // ---------- CHARACTER SCANNERS ----------
+    // hand-written equivalents of the former regexes, applied to the trim() bounds without copying
+
+    private static int trimStart(String v) {
+        int s = 0;
+        while (s < v.length() && v.charAt(s) <= ' ') s++;
+        return s;
+    }
+
+    private static int trimEnd(String v, int s) {
+        int e = v.length();
+        while (e > s && v.charAt(e - 1) <= ' ') e--;
+        return e;
+    }
+
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    // \d+
+    private static boolean allDigits(String v, int s, int e) {
+        if (s == e) return false;
+        for (int i = s; i < e; i++) {
+            if (!isDigit(v.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    // [A-Z]{2,4}\d{3}
+    private static boolean isCourseCode(String v, int s, int e) {
+        int letters = e - s - 3;
+        if (letters < 2 || letters > 4) return false;
+        for (int i = s; i < s + letters; i++) {
+            char ch = v.charAt(i);
+            if (ch < 'A' || ch > 'Z') return false;
+        }
+        return allDigits(v, s + letters, e);
+    }
+
+    // (Spring|Fall)\d{4}
+    private static boolean isSemester(String v, int s, int e) {
+        int len = e - s;
+        if (len == 10 && v.startsWith("Spring", s)) return allDigits(v, s + 6, e);
+        if (len == 8 && v.startsWith("Fall", s)) return allDigits(v, s + 4, e);
+        return false;
+    }
 }
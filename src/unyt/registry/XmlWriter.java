@@ -1,88 +1,156 @@
 package unyt.registry;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.*;
+import java.io.Writer;
 import java.util.List;
-import java.util.Locale;
 
-public class XmlWriter {
+public class XmlWriter implements ReportWriter {
 
-    public static void writeTopStudents(Path out, List<Registry.StudentRow> rows) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
-        sb.append("<topStudents>\n");
+    public static final XmlWriter INSTANCE = new XmlWriter();
+
+    @Override
+    public void topStudents(Writer out, List<Registry.StudentRow> rows) throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<topStudents>\n");
         for (Registry.StudentRow r : rows) {
-            sb.append("  <student>\n");
-            sb.append("    <id>").append(x(r.student().id())).append("</id>\n");
-            sb.append("    <name>").append(x(r.student().name())).append("</name>\n");
-            sb.append("    <surname>").append(x(r.student().surname())).append("</surname>\n");
-            sb.append("    <level>").append(x(r.student().level().label())).append("</level>\n");
-            sb.append("    <totalCredits>").append(r.totalCredits()).append("</totalCredits>\n");
-            sb.append("    <gpa>").append(String.format(Locale.US, "%.2f", r.gpa())).append("</gpa>\n");
-            sb.append("  </student>\n");
+            out.write("  <student>\n");
+            element(out, "    ", "id", r.student().id());
+            element(out, "    ", "name", r.student().name());
+            element(out, "    ", "surname", r.student().surname());
+            element(out, "    ", "level", r.student().level().label());
+            raw(out, "    ", "totalCredits", Integer.toString(r.totalCredits()));
+            decimal(out, "    ", "gpa", r.gpa());
+            out.write("  </student>\n");
         }
-        sb.append("</topStudents>\n");
-        write(out, sb.toString());
+        out.write("</topStudents>\n");
     }
 
-    public static void writeTopCourses(Path out, List<Registry.CourseRow> rows) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
-        sb.append("<topCourses>\n");
+    @Override
+    public void topCourses(Writer out, List<Registry.CourseRow> rows) throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<topCourses>\n");
         for (Registry.CourseRow r : rows) {
-            sb.append("  <course>\n");
-            sb.append("    <code>").append(x(r.course().code())).append("</code>\n");
-            sb.append("    <title>").append(x(r.course().title())).append("</title>\n");
-            sb.append("    <credits>").append(r.course().credits()).append("</credits>\n");
-            sb.append("    <level>").append(x(r.level().label())).append("</level>\n");
-            sb.append("    <gradeCount>").append(r.gradeCount()).append("</gradeCount>\n");
-            sb.append("  </course>\n");
+            out.write("  <course>\n");
+            element(out, "    ", "code", r.course().code());
+            element(out, "    ", "title", r.course().title());
+            raw(out, "    ", "credits", Integer.toString(r.course().credits()));
+            element(out, "    ", "level", r.level().label());
+            raw(out, "    ", "gradeCount", Integer.toString(r.gradeCount()));
+            out.write("  </course>\n");
         }
-        sb.append("</topCourses>\n");
-        write(out, sb.toString());
+        out.write("</topCourses>\n");
+    }
+
+    @Override
+    public void transcript(Writer out, Registry.Transcript t) throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        transcriptElement(out, t, "");
+    }
+
+    @Override
+    public void transcriptsStart(Writer out) throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<transcripts>\n");
+    }
+
+    @Override
+    public void transcriptsEntry(Writer out, Registry.Transcript t, boolean first) throws IOException {
+        transcriptElement(out, t, "  ");
     }
 
-    public static void writeTranscript(Path out, Registry.Transcript t) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
-        sb.append("<transcript>\n");
-        sb.append("  <student>\n");
-        sb.append("    <id>").append(x(t.student().id())).append("</id>\n");
-        sb.append("    <name>").append(x(t.student().name())).append("</name>\n");
-        sb.append("    <surname>").append(x(t.student().surname())).append("</surname>\n");
-        sb.append("    <level>").append(x(t.student().level().label())).append("</level>\n");
-        sb.append("  </student>\n");
-        sb.append("  <semesters>\n");
+    @Override
+    public void transcriptsEnd(Writer out, int count) throws IOException {
+        out.write("</transcripts>\n");
+    }
+
+    // <transcript> element, every line prefixed with pad
+    private static void transcriptElement(Writer out, Registry.Transcript t, String pad) throws IOException {
+        out.write(pad);
+        out.write("<transcript>\n");
+        out.write(pad);
+        out.write("  <student>\n");
+        element(out, pad + "    ", "id", t.student().id());
+        element(out, pad + "    ", "name", t.student().name());
+        element(out, pad + "    ", "surname", t.student().surname());
+        element(out, pad + "    ", "level", t.student().level().label());
+        out.write(pad);
+        out.write("  </student>\n");
+        out.write(pad);
+        out.write("  <semesters>\n");
+        String recordPad = pad + "        ";
         for (Registry.TranscriptSemester sem : t.semesters()) {
-            sb.append("    <semester name=\"").append(x(sem.semester())).append("\">\n");
+            out.write(pad);
+            out.write("    <semester name=\"");
+            x(out, sem.semester());
+            out.write("\">\n");
             for (Registry.TranscriptLine line : sem.lines()) {
-                sb.append("      <record>\n");
-                sb.append("        <courseCode>").append(x(line.courseCode())).append("</courseCode>\n");
-                sb.append("        <courseTitle>").append(x(line.courseTitle())).append("</courseTitle>\n");
-                sb.append("        <credits>").append(line.credits()).append("</credits>\n");
-                sb.append("        <numericGrade>").append(line.numericGrade()).append("</numericGrade>\n");
-                sb.append("        <letterGrade>").append(x(line.letterGrade())).append("</letterGrade>\n");
-                sb.append("        <gradePoints>").append(String.format(Locale.US, "%.2f", line.gradePoints())).append("</gradePoints>\n");
-                sb.append("      </record>\n");
+                out.write(pad);
+                out.write("      <record>\n");
+                element(out, recordPad, "courseCode", line.courseCode());
+                element(out, recordPad, "courseTitle", line.courseTitle());
+                raw(out, recordPad, "credits", Integer.toString(line.credits()));
+                raw(out, recordPad, "numericGrade", Integer.toString(line.numericGrade()));
+                element(out, recordPad, "letterGrade", line.letterGrade());
+                decimal(out, recordPad, "gradePoints", line.gradePoints());
+                out.write(pad);
+                out.write("      </record>\n");
             }
-            sb.append("    </semester>\n");
+            out.write(pad);
+            out.write("    </semester>\n");
         }
-        sb.append("  </semesters>\n");
-        sb.append("</transcript>\n");
-        write(out, sb.toString());
+        out.write(pad);
+        out.write("  </semesters>\n");
+        out.write(pad);
+        out.write("</transcript>\n");
+    }
+
+    // <tag>escaped value</tag> on its own line
+    private static void element(Writer out, String indent, String tag, String value) throws IOException {
+        out.write(indent);
+        out.write('<');
+        out.write(tag);
+        out.write('>');
+        x(out, value);
+        out.write("</");
+        out.write(tag);
+        out.write(">\n");
     }
 
-    private static String x(String s) {
-        if (s == null) return "";
-        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;").replace("'", "&apos;");
+    // same as element, for values that never need escaping
+    private static void raw(Writer out, String indent, String tag, String value) throws IOException {
+        out.write(indent);
+        out.write('<');
+        out.write(tag);
+        out.write('>');
+        out.write(value);
+        out.write("</");
+        out.write(tag);
+        out.write(">\n");
     }
 
-    private static void write(Path out, String content) {
-        try {
-            Files.writeString(out, content, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-        } catch (IOException e) {
-            throw new IllegalArgumentException("cannot write report file");
+    private static void decimal(Writer out, String indent, String tag, double value) throws IOException {
+        out.write(indent);
+        out.write('<');
+        out.write(tag);
+        out.write('>');
+        TwoDecimals.appendTo(out, value);
+        out.write("</");
+        out.write(tag);
+        out.write(">\n");
+    }
+
+    private static void x(Writer out, String s) throws IOException {
+        if (s == null) return;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            switch (ch) {
+                case '&' -> out.write("&amp;");
+                case '<' -> out.write("&lt;");
+                case '>' -> out.write("&gt;");
+                case '"' -> out.write("&quot;");
+                case '\'' -> out.write("&apos;");
+                default -> out.write(ch);
+            }
         }
     }
 }
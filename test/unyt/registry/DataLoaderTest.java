@@ -0,0 +1,94 @@
+package unyt.registry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataLoaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void parsesStudentLines() {
+        Student s = DataLoader.parseStudent("  9024882, Jessica, Weaver, j.w@shaw.com, UG  ", 1);
+        assertEquals("9024882, Jessica, Weaver, j.w@shaw.com, UG", TestData.line(s));
+
+        Student noEmail = DataLoader.parseStudent("1147032, Karen, Brown, , G", 2);
+        assertEquals("", noEmail.email());
+        assertEquals(Level.G, noEmail.level());
+
+        assertNull(DataLoader.parseStudent("   ", 3));
+    }
+
+    @Test
+    void rejectsInvalidStudentLines() {
+        assertEquals("students.txt invalid line 4", message(() -> DataLoader.parseStudent("1, A, B, UG", 4)));
+        assertEquals("invalid student ID", message(() -> DataLoader.parseStudent("12a, A, B, , UG", 1)));
+        assertEquals("missing name", message(() -> DataLoader.parseStudent("1,  , B, , UG", 1)));
+        assertEquals("invalid email", message(() -> DataLoader.parseStudent("1, A, B, nope, UG", 1)));
+        assertEquals("invalid level", message(() -> DataLoader.parseStudent("1, A, B, , PhD", 1)));
+    }
+
+    @Test
+    void parsesAndRejectsCourseLines() {
+        assertEquals("CS101, Intro, 4", TestData.line(DataLoader.parseCourse("CS101, Intro, 4", 1)));
+        assertNull(DataLoader.parseCourse("", 1));
+        assertEquals("courses.txt invalid line 7", message(() -> DataLoader.parseCourse("CS101, Intro", 7)));
+        assertEquals("invalid course code", message(() -> DataLoader.parseCourse("cs101, Intro, 4", 1)));
+        assertEquals("invalid credits", message(() -> DataLoader.parseCourse("CS101, Intro, 5", 1)));
+        assertEquals("invalid course code", message(() -> DataLoader.parseCourse("CS001, Intro, 4", 1)));
+    }
+
+    @Test
+    void parsesAndRejectsGradeLines() {
+        assertEquals("9024882, CS101, Spring2024, 76",
+                TestData.line(DataLoader.parseGrade("9024882, CS101, Spring2024, 76", 1)));
+        assertEquals(100, DataLoader.parseGrade("1, CS101, Fall2024,  100 ", 1).numericGrade());
+        assertNull(DataLoader.parseGrade("\t", 1));
+        assertEquals("grades.txt invalid line 3", message(() -> DataLoader.parseGrade("1, CS101, Fall2024", 3)));
+        assertEquals("invalid grade", message(() -> DataLoader.parseGrade("1, CS101, Fall2024, 101", 1)));
+        assertEquals("invalid semester", message(() -> DataLoader.parseGrade("1, CS101, Winter2024, 70", 1)));
+    }
+
+    @Test
+    void sequentialAndParallelLoadsAgree() {
+        TestData.folder(dir);
+        DataLoader.LoadResult seq = DataLoader.loadAll(dir.toString(), false);
+        DataLoader.LoadResult par = DataLoader.loadAll(dir.toString(), true);
+
+        assertEquals(List.of("9024882, Jessica, Weaver, jessica.weaver52@shaw.com, UG", "1147032, Karen, Brown, , UG",
+                "9322159, Michael, Brown, michael.brown72@hall-baker.com, G"), TestData.studentLines(seq.students()));
+        assertEquals(3, seq.courses().size());
+        assertEquals(4, seq.grades().size());
+        assertEquals(TestData.studentLines(seq.students()), TestData.studentLines(par.students()));
+        assertEquals(TestData.courseLines(seq.courses()), TestData.courseLines(par.courses()));
+        assertEquals(TestData.gradeLines(seq.grades()), TestData.gradeLines(par.grades()));
+        assertFalse(seq.fromSnapshot());
+    }
+
+    @Test
+    void reportsTheFirstBadLineOfAFile() {
+        TestData.folder(dir, TestData.STUDENTS, TestData.COURSES,
+                "9024882, CS101, Spring2024, 76\n\n9024882, CS102, Fall2024, 7x\n");
+        assertEquals("invalid grade", message(() -> DataLoader.loadAll(dir.toString(), false)));
+        assertEquals("invalid grade", message(() -> DataLoader.loadAll(dir.toString(), true)));
+
+        TestData.folder(dir, TestData.STUDENTS, TestData.COURSES, "9024882, CS101\n");
+        assertEquals("grades.txt invalid line 1", message(() -> DataLoader.loadAll(dir.toString(), true)));
+    }
+
+    @Test
+    void rejectsMissingFolderAndFiles() {
+        assertEquals("invalid folder name", message(() -> DataLoader.loadAll(dir.resolve("nope").toString())));
+        assertEquals("data files not found", message(() -> DataLoader.loadAll(dir.toString())));
+    }
+
+    static String message(Runnable r) {
+        return assertThrows(IllegalArgumentException.class, r::run).getMessage();
+    }
+}
@@ -0,0 +1,234 @@
+package unyt.registry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataWriterTest {
+
+    private static final DataWriter.Config NO_FLUSH = new DataWriter.Config(DataWriter.Durability.NONE, 0, 64 * 1024, Long.MAX_VALUE);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysEveryRecordWrittenToTheLog() throws IOException {
+        DataWriter w = new DataWriter(dir, NO_FLUSH, 0, 0);
+        w.appendStudent(new Student("555", "Ann", "Lee", "", Level.UG));
+        w.appendCourse(new Course("CS555", "Things, and more", 3));
+        w.appendGrade(new Evaluation("555", "CS555", "Fall2025", 91));
+        w.appendGrades(List.of(new Evaluation("555", "CS101", "Fall2025", 60), new Evaluation("556", "CS101", "Fall2025", 61)));
+        w.close();
+
+        assertTrue(Files.exists(DataWriter.segment(dir, 1)));
+        DataLoader.LogReplay log = DataLoader.readLog(dir);
+        assertEquals(List.of("S 555, Ann, Lee, , UG", "C CS555, Things, and more, 3", "G 555, CS555, Fall2025, 91",
+                "G 555, CS101, Fall2025, 60", "G 556, CS101, Fall2025, 61"), lines(log));
+        assertEquals(1, log.lastSegment());
+        assertEquals(Files.size(DataWriter.segment(dir, 1)), log.bytes());
+    }
+
+    @Test
+    void continuesInANewSegmentAfterReplay() {
+        DataWriter first = new DataWriter(dir, NO_FLUSH, 0, 0);
+        first.appendStudent(new Student("1", "A", "B", "", Level.UG));
+        first.close();
+
+        DataLoader.LogReplay log = DataLoader.readLog(dir);
+        DataWriter second = new DataWriter(dir, NO_FLUSH, log.lastSegment(), log.bytes());
+        second.appendStudent(new Student("2", "C", "D", "", Level.G));
+        second.close();
+
+        assertTrue(Files.exists(DataWriter.segment(dir, 2)));
+        assertEquals(List.of("S 1, A, B, , UG", "S 2, C, D, , G"), lines(DataLoader.readLog(dir)));
+    }
+
+    @Test
+    void writesNothingUntilSomethingIsAppended() {
+        new DataWriter(dir, DataWriter.Config.DEFAULT, 0, 0).close();
+        DataLoader.LogReplay log = DataLoader.readLog(dir);
+        assertTrue(log.records().isEmpty());
+        assertEquals(0, log.lastSegment());
+    }
+
+    // ---------- DAMAGED SEGMENTS ----------
+
+    @Test
+    void tornRecordEndsTheReplayAndIsTruncated() throws IOException {
+        Path file = logOf(3);
+        byte[] b = Files.readAllBytes(file);
+        int third = lineStart(b, 2);
+        Files.write(file, Arrays.copyOf(b, b.length - 5)); // the last record lost its end and its newline
+
+        DataLoader.LogReplay log = DataLoader.readLog(dir);
+        assertEquals(List.of("S 1, A, B, , UG", "S 2, A, B, , UG"), lines(log));
+        assertEquals(third, log.bytes());
+        assertEquals(third, Files.size(file));
+    }
+
+    @Test
+    void recordFailingItsChecksumEndsTheSegment() throws IOException {
+        Path file = logOf(3);
+        byte[] b = Files.readAllBytes(file);
+        int second = lineStart(b, 1);
+        b[lineStart(b, 2) - 3] = 'X'; // the level of the second record, its newline intact
+        Files.write(file, b);
+
+        DataLoader.LogReplay log = DataLoader.readLog(dir);
+        assertEquals(List.of("S 1, A, B, , UG"), lines(log)); // the third record is intact but follows the damage
+        assertEquals(second, Files.size(file));
+    }
+
+    @Test
+    void recordWithAMalformedChecksumEndsTheSegment() throws IOException {
+        Path file = logOf(2);
+        byte[] b = Files.readAllBytes(file);
+        int second = lineStart(b, 1);
+        b[second + 4] = 'g';
+        Files.write(file, b);
+
+        assertEquals(List.of("S 1, A, B, , UG"), lines(DataLoader.readLog(dir)));
+        assertEquals(second, Files.size(file));
+    }
+
+    @Test
+    void incompleteBatchIsDroppedWhole() throws IOException {
+        DataWriter w = new DataWriter(dir, NO_FLUSH, 0, 0);
+        w.appendStudent(new Student("1", "A", "B", "", Level.UG));
+        w.appendGrades(List.of(new Evaluation("1", "CS101", "Fall2025", 60), new Evaluation("1", "CS102", "Fall2025", 61),
+                new Evaluation("1", "CS501", "Fall2025", 62)));
+        w.close();
+        Path file = DataWriter.segment(dir, 1);
+        byte[] b = Files.readAllBytes(file);
+        int header = lineStart(b, 1);
+        assertEquals('B', b[header]);
+        Files.write(file, Arrays.copyOf(b, lineStart(b, 4))); // "B 3" and two of its three grades
+
+        DataLoader.LogReplay log = DataLoader.readLog(dir);
+        assertEquals(List.of("S 1, A, B, , UG"), lines(log));
+        assertEquals(header, Files.size(file));
+    }
+
+    @Test
+    void batchWithADamagedRecordIsDroppedWhole() throws IOException {
+        DataWriter w = new DataWriter(dir, NO_FLUSH, 0, 0);
+        w.appendGrades(List.of(new Evaluation("1", "CS101", "Fall2025", 60), new Evaluation("1", "CS102", "Fall2025", 61)));
+        w.appendStudent(new Student("2", "A", "B", "", Level.UG));
+        w.close();
+        Path file = DataWriter.segment(dir, 1);
+        byte[] b = Files.readAllBytes(file);
+        b[lineStart(b, 3) - 2] = '9'; // the grade of the batch's last record
+        Files.write(file, b);
+        assertEquals(List.of(), lines(DataLoader.readLog(dir)));
+        assertEquals(0, Files.size(file));
+    }
+
+    @Test
+    void batchHeaderWithABadCountEndsTheSegment() throws IOException {
+        Path file = logOf(1);
+        byte[] b = Files.readAllBytes(file);
+        byte[] count = {'x'};
+        byte[] bad = String.format("B %08x x\n", DataWriter.checksum(count, 0, 1)).getBytes(StandardCharsets.US_ASCII);
+        byte[] both = Arrays.copyOf(b, b.length + bad.length);
+        System.arraycopy(bad, 0, both, b.length, bad.length);
+        Files.write(file, both);
+
+        assertEquals(List.of("S 1, A, B, , UG"), lines(DataLoader.readLog(dir)));
+        assertEquals(b.length, Files.size(file));
+    }
+
+    // damage ends only its own segment: the next one was started after a replay, so it is still read
+    @Test
+    void laterSegmentsAreStillReplayed() throws IOException {
+        Path first = logOf(2);
+        byte[] b = Files.readAllBytes(first);
+        Files.write(first, Arrays.copyOf(b, b.length - 1));
+        DataWriter w = new DataWriter(dir, NO_FLUSH, 1, b.length);
+        w.appendStudent(new Student("9", "C", "D", "", Level.G));
+        w.close();
+
+        DataLoader.LogReplay log = DataLoader.readLog(dir);
+        assertEquals(List.of("S 1, A, B, , UG", "S 9, C, D, , G"), lines(log));
+        assertEquals(2, log.lastSegment());
+        assertEquals(lineStart(b, 1), Files.size(first));
+    }
+
+    // a log of n students with ids 1..n in the first segment
+    private Path logOf(int n) {
+        DataWriter w = new DataWriter(dir, NO_FLUSH, 0, 0);
+        for (int i = 1; i <= n; i++) w.appendStudent(new Student(String.valueOf(i), "A", "B", "", Level.UG));
+        w.close();
+        return DataWriter.segment(dir, 1);
+    }
+
+    // offset of the line with the given 0-based index
+    private static int lineStart(byte[] b, int line) {
+        int pos = 0;
+        for (int i = 0; i < line; i++) {
+            while (b[pos] != '\n') pos++;
+            pos++;
+        }
+        return pos;
+    }
+
+    @Test
+    void registryReplaysTheLogOnTheNextLoad() {
+        TestData.folder(dir);
+        System.setProperty("registry.snapshot", "false");
+        System.setProperty("registry.flushBytes", "0"); // every add is written at once
+        try {
+            Registry r = new Registry();
+            r.load(dir.toString());
+            assertTrue(r.addStudent("555, Ann, Lee, , UG").equals("1 record added"));
+            assertTrue(r.addGrade("555, CS101, Fall2025, 91").equals("1 record added"));
+            // not closed, so nothing is compacted into the data files; the log is all there is
+            Registry again = new Registry();
+            again.load(dir.toString());
+            assertNotNull(again.findStudent("555"));
+            assertNotNull(again.findGrade("555", "CS101"));
+            r.close();
+            again.close();
+        } finally {
+            System.clearProperty("registry.snapshot");
+            System.clearProperty("registry.flushBytes");
+        }
+    }
+
+    // quit commits the log and leaves the data files and the snapshot to compaction
+    @Test
+    void closeKeepsAddsInTheLogOnly() throws IOException {
+        TestData.folder(dir);
+        System.setProperty("registry.durability", "none");
+        try {
+            Registry r = new Registry();
+            r.load(dir.toString());
+            byte[] grades = Files.readAllBytes(dir.resolve("grades.txt"));
+            byte[] snapshot = Files.readAllBytes(dir.resolve(Snapshot.FILE_NAME));
+            assertEquals("1 record added", r.addGrade("1147032, CS102, Fall2025, 64"));
+            r.close();
+
+            assertArrayEquals(grades, Files.readAllBytes(dir.resolve("grades.txt")));
+            assertArrayEquals(snapshot, Files.readAllBytes(dir.resolve(Snapshot.FILE_NAME)));
+            assertEquals(List.of("G 1147032, CS102, Fall2025, 64"), lines(DataLoader.readLog(dir)));
+
+            Registry again = new Registry();
+            again.load(dir.toString());
+            assertNotNull(again.findGrade("1147032", "CS102"));
+            again.close();
+        } finally {
+            System.clearProperty("registry.durability");
+        }
+    }
+
+    static List<String> lines(DataLoader.LogReplay log) {
+        return log.records().stream().map(r -> r.kind() + " " + r.line()).toList();
+    }
+}
@@ -0,0 +1,175 @@
+package unyt.registry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The rejection rules of import: what it prints for each rejected line, and that only the accepted rows
+// reach the registry, all of them or, when the log cannot be written, none.
+class ImportTest {
+
+    @TempDir
+    Path dir;
+
+    private Registry registry;
+    private PrintStream stdout;
+    private final ByteArrayOutputStream printed = new ByteArrayOutputStream();
+
+    @BeforeEach
+    void setUp() {
+        System.setProperty("registry.durability", "none");
+        System.setProperty("registry.snapshot", "false");
+        stdout = System.out;
+        System.setOut(new PrintStream(printed, true, StandardCharsets.UTF_8));
+        TestData.folder(dir);
+        registry = new Registry();
+        registry.load(dir.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(stdout);
+        System.clearProperty("registry.durability");
+        System.clearProperty("registry.snapshot");
+    }
+
+    @Test
+    void rejectsStudentsAlreadyPresentOrTwiceInTheBatch() {
+        String out = importFile("student", """
+                1147032, Karen, Brown, , UG
+                5550001, Ann, Lee, ann.lee@uni.edu, UG
+                5550001, Ann, Again, , G
+                """);
+
+        assertEquals("""
+                error: line 1: student with id 1147032 is already present
+                error: line 3: student with id 5550001 is already present
+                1 record imported, 2 rejected
+                """, out);
+        assertEquals("Lee", registry.findStudent("5550001").student().surname());
+        assertEquals(Level.UG, registry.findStudent("5550001").student().level());
+        assertEquals(4, registry.studentIds().size());
+        registry.close();
+    }
+
+    @Test
+    void rejectsCoursesAlreadyPresentOrTwiceInTheBatch() {
+        String out = importFile("course", """
+                CS101, Something Else, 3
+                CS202, Algorithms, 4
+                CS202, Algorithms Again, 3
+                """);
+
+        assertEquals("""
+                error: line 1: course with code CS101 is already present
+                error: line 3: course with code CS202 is already present
+                1 record imported, 2 rejected
+                """, out);
+        assertEquals("Introduction to Programming I (Java)", registry.findCourse("CS101").title());
+        assertEquals("Algorithms", registry.findCourse("CS202").title());
+        assertEquals(4, registry.findCourse("CS202").credits());
+        registry.close();
+    }
+
+    // blank lines are skipped but still counted, so the line numbers are the file's
+    @Test
+    void rejectsGradesByTheRulesOfAddGrade() {
+        String out = importFile("grade", """
+                9024882, CS101, Fall2025, 90
+                1147032, CS102, Fall2025, 64
+
+                1147032, CS102, Spring2025, 50
+                7777777, CS101, Fall2025, 60
+                1147032, CS999, Fall2025, 60
+                9322159, CS101, Fall2025, 60
+                9322159, CS102, Fall2025
+                """);
+
+        assertEquals("""
+                error: line 1: grade for (9024882, CS101) is already present
+                error: line 4: grade for (1147032, CS102) is already present
+                error: line 5: no student found
+                error: line 6: no course found
+                error: line 7: graduate student may not take undergraduate course
+                error: line 8: invalid number of fields for grade
+                1 record imported, 6 rejected
+                """, out);
+        assertEquals(76, registry.findGrade("9024882", "CS101").numericGrade());
+        assertEquals(64, registry.findGrade("1147032", "CS102").numericGrade());
+        assertEquals("Fall2025", registry.findGrade("1147032", "CS102").semester());
+        assertNull(registry.findGrade("9322159", "CS101"));
+        assertNull(registry.findGrade("9322159", "CS102"));
+        assertEquals(2, registry.findStudent("1147032").coursesTaken());
+        assertEquals(TestData.GRADES.lines().count() + 1, gradeCount());
+        registry.close();
+    }
+
+    @Test
+    void printsTheFirstTenRejectedLines() {
+        StringBuilder file = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 1; i <= 13; i++) {
+            file.append("9024882, CS101, Fall2025, ").append(i).append('\n');
+            if (i <= 10) expected.append("error: line ").append(i).append(": grade for (9024882, CS101) is already present\n");
+        }
+        expected.append("error: ... 3 more rejected lines\n");
+        expected.append("0 records imported, 13 rejected\n");
+
+        assertEquals(expected.toString(), importFile("grade", file.toString()));
+        assertEquals(TestData.GRADES.lines().count(), gradeCount());
+        registry.close();
+    }
+
+    // A directory in place of the log segment makes the batch's single write fail. None of the batch is
+    // applied, and none of it reaches the log later: the writer takes no more records once a write failed.
+    @Test
+    void appliesNothingWhenTheBatchCannotBeWritten() throws IOException {
+        Path segment = Files.createDirectory(DataWriter.segment(dir, 1));
+        String batch = """
+                1147032, CS102, Fall2025, 64
+                9322159, CS501, Spring2025, 75
+                """;
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> importFile("grade", batch));
+        assertEquals("cannot write to data file: registry-1.wal", e.getMessage());
+        assertNull(registry.findGrade("1147032", "CS102"));
+        assertEquals(1, registry.findStudent("1147032").coursesTaken());
+        assertEquals(TestData.GRADES.lines().count(), gradeCount());
+
+        Files.delete(segment);
+        assertThrows(IllegalArgumentException.class, () -> importFile("grade", "9024882, CS501, Fall2025, 80\n"));
+        assertThrows(IllegalArgumentException.class, registry::close);
+
+        Registry reloaded = new Registry();
+        reloaded.load(dir.toString());
+        assertNull(reloaded.findGrade("1147032", "CS102"));
+        assertNull(reloaded.findGrade("9024882", "CS501"));
+        assertEquals(TestData.GRADES.lines().count(), reloaded.queryDisplay("grade", "").lines().count() - 1);
+        reloaded.close();
+    }
+
+    // what the import printed
+    private String importFile(String entity, String lines) {
+        try {
+            Path file = Files.writeString(dir.resolve("import-" + entity + ".txt"), lines);
+            printed.reset();
+            registry.importFromFile(entity, file.toString());
+            return printed.toString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long gradeCount() {
+        return registry.queryDisplay("grade", "").lines().count() - 1;
+    }
+}
@@ -0,0 +1,178 @@
+package unyt.registry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The memory-mapped parser against the line-based one it replaced (readLine + DataLoader.parseGrade): the
+// same grades, line count, failing line and error for every input, whether a line takes the byte-level
+// fast path or falls back to parseGrade.
+class MappedGradeParserTest {
+
+    private static final String VALID = "9024882, CS101, Spring2024, 76";
+
+    @TempDir
+    Path dir;
+
+    private record Outcome(List<String> grades, int lines, int failedLine, String error) {}
+
+    @Test
+    void agreesOnWellFormedFiles() throws IOException {
+        same(VALID + "\n1147032, CS102, Fall2024, 100\n9322159, CSE501, Fall2024, 0\n");
+        same(VALID + "\r\n1147032, CS102, Fall2024, 100\r\n");   // CRLF
+        same(VALID + "\r1147032, CS102, Fall2024, 100\r");       // bare CR
+        same(VALID + "\n1147032, CS102, Fall2024, 100");         // no final newline
+        same(VALID + "\n\n   \n\t\n" + VALID + "\n\n");            // blank lines
+        same("");
+        same("\n");
+    }
+
+    @Test
+    void agreesOnWhitespace() throws IOException {
+        same("  " + VALID + " \t \n");                            // around the line
+        same("9024882 , CS101,  Spring2024 ,   76\t\n");          // around fields
+        same("9024882, CS101, Spring2024, 76\u000b\n");           // other control characters count as blank
+        same("9024882,\tCS101, Spring2024, 76\n");                // tab instead of the space of a separator
+        same("9024882,CS101, Spring2024, 76\n");                  // separator without space
+        same("9024882, CS101, Spring2024, 76\u00a0\n");           // no-break space is not trimmed
+    }
+
+    @Test
+    void agreesOnNonAsciiBytes() throws IOException {
+        same("9024882, CS101, Spring2024, \uff17\uff16\n");       // full-width digits, which parseInt accepts
+        same("\u0669\u0660\u0662, CS101, Spring2024, 76\n");      // Arabic-Indic digits in the ID
+        same("9024882, CS101, Spr\u00efng2024, 76\n");
+        same("9024882, \u00c7S101, Spring2024, 76\n");
+        same("caf\u00e9\n");
+    }
+
+    @Test
+    void agreesOnMalformedLines() throws IOException {
+        same(VALID + "\n9024882, CS101, Spring2024\n" + VALID + "\n");   // fields missing: fails on line 2
+        same(VALID + "\n9024882, CS101, Spring2024, 76, 5\n");
+        same("9024882, CS101, Spring2024, 101\n");
+        same("9024882, CS101, Spring2024, -1\n");
+        same("9024882, CS101, Spring2024, +5\n");                  // parseInt accepts the sign
+        same("9024882, CS101, Spring2024, -0\n");
+        same("9024882, CS101, Spring2024, 0076\n");
+        same("9024882, CS101, Spring2024, \n");
+        same("9024882, CS101, Spring2024, 7 6\n");
+        same("9024882, cs101, Spring2024, 76\n");
+        same("9024882, C101, Spring2024, 76\n");
+        same("9024882, CSABC101, Spring2024, 76\n");
+        same("9024882, CS1011, Spring2024, 76\n");
+        same("9024882, CS101, Winter2024, 76\n");
+        same("9024882, CS101, Spring24, 76\n");
+        same("9024882, CS101, spring2024, 76\n");
+        same("90x4882, CS101, Spring2024, 76\n");
+        same(", CS101, Spring2024, 76\n");
+        same(", , , \n");
+        same("9024882, CS101, Spring2024, 76,\n");
+        same("9024882, CS101, Spring2024, 76, \n");
+    }
+
+    // lines put together from valid fields and small corruptions, several per file
+    @Test
+    void agreesOnGeneratedLines() throws IOException {
+        String[] ids = {"9024882", "1", "007", "", " 42 ", "12a", "\uff11\uff12", "-5"};
+        String[] codes = {"CS101", "CSE501", "ABCD999", "A101", "ABCDE101", "cs101", "CS10", "CS1001", " CS101 ", "\u00c7S101"};
+        String[] semesters = {"Spring2024", "Fall2024", "Fall20245", "Spring", "Summer2024", "Fall 2024", "Fall\uff12\uff10\uff12\uff14"};
+        String[] grades = {"0", "100", "76", "101", "-1", "+7", "007", "", "7x", "\uff17", " 9 "};
+        String[] separators = {", ", ", ", ", ", ",", " ,", ",  ", ",\t"};
+        String[] endings = {"\n", "\n", "\r\n", "\r", " \n", "\t\r\n"};
+
+        Random rnd = new Random(4);
+        for (int file = 0; file < 400; file++) {
+            StringBuilder sb = new StringBuilder();
+            int lines = 1 + rnd.nextInt(6);
+            for (int l = 0; l < lines; l++) {
+                if (rnd.nextInt(8) == 0) {
+                    sb.append(rnd.nextBoolean() ? "" : "  ");
+                } else {
+                    sb.append(pick(rnd, ids)).append(pick(rnd, separators)).append(pick(rnd, codes))
+                            .append(pick(rnd, separators)).append(pick(rnd, semesters))
+                            .append(pick(rnd, separators)).append(pick(rnd, grades));
+                }
+                if (l < lines - 1 || rnd.nextBoolean()) sb.append(pick(rnd, endings));
+            }
+            same(sb.toString());
+        }
+    }
+
+    // the parallel loader parses chunks cut at line starts; together they give the whole file
+    @Test
+    void chunksCutAtLineStartsAddUpToTheWholeFile() throws IOException {
+        String content = VALID + "\r\n1147032, CS102, Fall2024, 100\n\n9322159, CSE501, Fall2024, \uff10\n" + VALID;
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        Path file = Files.write(dir.resolve("grades.txt"), bytes);
+
+        List<String> chunked = new ArrayList<>();
+        int lines = 0;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long from = 0;
+            for (long to = 1; to <= bytes.length; to++) {
+                if (to < bytes.length && bytes[(int) to - 1] != '\n') continue;
+                MappedGradeParser.Result r = MappedGradeParser.parse(ch, from, to);
+                assertEquals(null, r.failure());
+                chunked.addAll(TestData.gradeLines(r.grades()));
+                lines += r.lines();
+                from = to;
+            }
+        }
+        Outcome whole = lineBased(bytes);
+        assertEquals(whole.grades(), chunked);
+        assertEquals(whole.lines(), lines);
+    }
+
+    private void same(String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        assertEquals(lineBased(bytes), mapped(bytes), () -> "input: " + content.replace("\r", "\\r").replace("\n", "\\n"));
+    }
+
+    private static Outcome lineBased(byte[] bytes) throws IOException {
+        List<String> grades = new ArrayList<>();
+        int lineNo = 0;
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                lineNo++;
+                try {
+                    Evaluation e = DataLoader.parseGrade(line, lineNo);
+                    if (e != null) grades.add(TestData.line(e));
+                } catch (RuntimeException ex) {
+                    return new Outcome(grades, lineNo, lineNo, ex.getClass().getSimpleName() + ": " + ex.getMessage());
+                }
+            }
+        }
+        return new Outcome(grades, lineNo, 0, null);
+    }
+
+    private Outcome mapped(byte[] bytes) throws IOException {
+        Path file = Files.write(dir.resolve("grades.txt"), bytes);
+        MappedGradeParser.Result res;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            res = MappedGradeParser.parse(ch, 0, ch.size());
+        }
+        RuntimeException f = res.failure();
+        return new Outcome(TestData.gradeLines(res.grades()), res.lines(), res.failedLine(),
+                f == null ? null : f.getClass().getSimpleName() + ": " + f.getMessage());
+    }
+
+    private static String pick(Random rnd, String[] values) {
+        return values[rnd.nextInt(values.length)];
+    }
+}
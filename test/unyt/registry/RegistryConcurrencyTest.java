@@ -0,0 +1,224 @@
+package unyt.registry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Writers adding records one at a time and importing batches while readers check what they see: a read
+// sees a grade only together with its student and course, a student's totals match its grades, an import
+// batch completely or not at all, an add once it has returned, and a reportSnapshot() the same records
+// however often it is read.
+class RegistryConcurrencyTest {
+
+    private static final int SINGLE_ADDS = 400;
+    private static final int BATCHES = 40;
+    private static final int BATCH_SIZE = 20;
+    private static final int READERS = 3;
+
+    @TempDir
+    Path dir;
+
+    private Registry registry;
+    private PrintStream stdout;
+    private final Queue<String> violations = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean writing = new AtomicBoolean(true);
+    // index of the last single add whose grade has been added, or -1
+    private final AtomicInteger lastAdded = new AtomicInteger(-1);
+
+    @BeforeEach
+    void setUp() {
+        System.setProperty("registry.durability", "none");
+        System.setProperty("registry.snapshot", "false");
+        // load and import report on stdout
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        TestData.folder(dir);
+        registry = new Registry();
+        registry.load(dir.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.close();
+        System.setOut(stdout);
+        System.clearProperty("registry.durability");
+        System.clearProperty("registry.snapshot");
+    }
+
+    @Test
+    void readersSeeConsistentStateWhileWritersAdd() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        threads.add(thread("single-writer", start, this::addOneByOne));
+        threads.add(thread("import-writer", start, this::importBatches));
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) readers.add(thread("reader-" + i, start, this::readUntilDone));
+
+        threads.forEach(Thread::start);
+        readers.forEach(Thread::start);
+        start.countDown();
+        for (Thread t : threads) t.join(120_000);
+        writing.set(false);
+        for (Thread t : readers) t.join(120_000);
+
+        assertTrue(violations.isEmpty(), () -> violations.size() + " violations, first: " + violations.peek());
+        assertEquals(3 + SINGLE_ADDS + BATCHES * BATCH_SIZE, registry.studentIds().size());
+        assertEquals(TestData.GRADES.lines().count() + SINGLE_ADDS + BATCHES * BATCH_SIZE, count(registry, "grade", ""));
+        // after the writers, every read is a single fixed state again
+        checkSnapshot(registry.reportSnapshot());
+    }
+
+    // a student, every tenth time a new course, then the student's grade in the newest course
+    private void addOneByOne() {
+        for (int i = 0; i < SINGLE_ADDS; i++) {
+            if (i % 10 == 0) {
+                expect("1 record added", registry.addCourse(course(i) + ", Stress Course " + i + ", 3"));
+            }
+            String id = String.valueOf(5_000_000 + i);
+            expect("1 record added", registry.addStudent(id + ", Single, Writer" + i + ", , UG"));
+            expect("1 record added", registry.addGrade(id + ", " + course(i) + ", Fall2030, " + (40 + i % 61)));
+            lastAdded.set(i);
+        }
+    }
+
+    private static String course(int i) {
+        return "ZZ" + (char) ('A' + i / 10 % 26) + (100 + i / 10);
+    }
+
+    // batches of students, then their grades, each through one import
+    private void importBatches() {
+        try {
+            for (int b = 0; b < BATCHES; b++) {
+                StringBuilder students = new StringBuilder();
+                StringBuilder grades = new StringBuilder();
+                for (int k = 0; k < BATCH_SIZE; k++) {
+                    String id = String.valueOf(6_000_000 + b * BATCH_SIZE + k);
+                    students.append(id).append(", Batch, Batch").append(b).append("x, , UG\n");
+                    grades.append(id).append(", CS102, Spring2030, ").append(50 + k).append('\n');
+                }
+                Path s = Files.writeString(dir.resolve("import-students-" + b + ".txt"), students);
+                Path g = Files.writeString(dir.resolve("import-grades-" + b + ".txt"), grades);
+                registry.importFromFile("student", s.toString());
+                registry.importFromFile("grade", g.toString());
+            }
+        } catch (IOException e) {
+            violations.add("cannot write import file: " + e.getMessage());
+        }
+    }
+
+    private void readUntilDone() {
+        int round = 0;
+        while (writing.get() || round < 3) {
+            checkLiveReads(round);
+            checkSnapshot(registry.reportSnapshot());
+            round++;
+        }
+    }
+
+    private void checkLiveReads(int round) {
+        int last = lastAdded.get();
+        if (last >= 0) {
+            String id = String.valueOf(5_000_000 + last);
+            check(registry.findGrade(id, course(last)) != null, "grade of " + id + " not visible after its add returned");
+            Registry.StudentDetails d = registry.findStudent(id);
+            check(d != null && d.coursesTaken() == 1, "totals of " + id + " not visible after its add returned");
+        }
+
+        // a single query runs against one horizon, so its header always matches its rows
+        StringBuilder out = new StringBuilder();
+        registry.queryTo("grade", "semester=Fall2030", out);
+        List<String> lines = out.toString().lines().toList();
+        check(lines.get(0).equals((lines.size() - 1) + " records found"), "header disagrees with rows: " + lines.get(0));
+
+        // records only ever become visible, so a later read must find what an earlier one returned
+        for (int i = 1; i < lines.size(); i += Math.max(1, lines.size() / 16)) {
+            String[] f = lines.get(i).split(", ");
+            check(registry.findStudent(f[0]) != null, "grade of " + f[0] + " visible before its student");
+            check(registry.findCourse(f[1]) != null, "grade in " + f[1] + " visible before its course");
+        }
+
+        int b = round % BATCHES;
+        long batch = count(registry, "student", "surname=Batch" + b + "x");
+        check(batch == 0 || batch == BATCH_SIZE, "import batch " + b + " partly visible: " + batch);
+    }
+
+    // every check runs twice against one snapshot, with the writers still going
+    private void checkSnapshot(Registry snap) {
+        String grades = query(snap, "grade", "");
+        String students = query(snap, "student", "");
+
+        List<String> gradeRows = grades.lines().skip(1).toList();
+        List<String> studentRows = students.lines().skip(1).toList();
+        Map<String, Integer> gradesPerStudent = new HashMap<>();
+        for (String row : gradeRows) {
+            String[] f = row.split(", ");
+            check(snap.findStudent(f[0]) != null, "snapshot grade of " + f[0] + " without its student");
+            check(snap.findCourse(f[1]) != null, "snapshot grade in " + f[1] + " without its course");
+            gradesPerStudent.merge(f[0], 1, Integer::sum);
+        }
+        for (String row : studentRows) {
+            String id = row.substring(0, row.indexOf(','));
+            Registry.StudentDetails d = snap.findStudent(id);
+            int expected = gradesPerStudent.getOrDefault(id, 0);
+            check(d != null && d.coursesTaken() == expected, "snapshot totals of " + id + " do not match its grades");
+        }
+        for (int b = 0; b < BATCHES; b += 7) {
+            long batch = count(snap, "student", "surname=Batch" + b + "x");
+            check(batch == 0 || batch == BATCH_SIZE, "import batch " + b + " partly visible in a snapshot: " + batch);
+            long batchGrades = count(snap, "grade", "semester=Spring2030");
+            check(batchGrades % BATCH_SIZE == 0, "imported grades partly visible in a snapshot: " + batchGrades);
+        }
+
+        check(query(snap, "grade", "").equals(grades), "snapshot grades changed between two reads");
+        check(query(snap, "student", "").equals(students), "snapshot students changed between two reads");
+        check(snap.studentIds().size() == studentRows.size(), "snapshot student ids disagree with its query");
+    }
+
+    private static String query(Registry r, String entity, String criteria) {
+        StringBuilder out = new StringBuilder();
+        r.queryTo(entity, criteria, out);
+        return out.toString();
+    }
+
+    private static long count(Registry r, String entity, String criteria) {
+        String header = query(r, entity, criteria + (criteria.isEmpty() ? "" : ", ") + "limit=0");
+        return Long.parseLong(header.substring(0, header.indexOf(' ')));
+    }
+
+    private void expect(String expected, String actual) {
+        check(expected.equals(actual), "write failed: " + actual);
+    }
+
+    private void check(boolean ok, String message) {
+        if (!ok) violations.add(message);
+    }
+
+    private Thread thread(String name, CountDownLatch start, Runnable body) {
+        return new Thread(() -> {
+            try {
+                start.await();
+                body.run();
+            } catch (Throwable t) {
+                violations.add(name + " failed: " + t);
+            }
+        }, name);
+    }
+}
@@ -0,0 +1,170 @@
+package unyt.registry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTest {
+
+    // the body starts after the magic, the version, three (size, CRC32) pairs and the body's CRC32
+    private static final int BODY = 8 + 3 * 12 + 4;
+
+    @TempDir
+    Path dir;
+
+    private DataLoader.LoadResult writeSnapshot() {
+        TestData.folder(dir);
+        DataLoader.LoadResult text = DataLoader.loadAll(dir.toString(), false);
+        Snapshot.write(dir, text.students(), text.courses(), text.grades());
+        return text;
+    }
+
+    @Test
+    void readsBackWhatWasWritten() {
+        DataLoader.LoadResult text = writeSnapshot();
+        DataLoader.LoadResult snap = Snapshot.read(dir);
+
+        assertNotNull(snap);
+        assertTrue(snap.fromSnapshot());
+        assertEquals(TestData.studentLines(text.students()), TestData.studentLines(snap.students()));
+        assertEquals(TestData.courseLines(text.courses()), TestData.courseLines(snap.courses()));
+        assertEquals(TestData.gradeLines(text.grades()), TestData.gradeLines(snap.grades()));
+    }
+
+    @Test
+    void isIgnoredWhenMissing() {
+        TestData.folder(dir);
+        assertNull(Snapshot.read(dir));
+    }
+
+    @Test
+    void isStaleOnceADataFileChangesSize() throws IOException {
+        writeSnapshot();
+        Path grades = dir.resolve("grades.txt");
+        FileTime before = Files.getLastModifiedTime(grades);
+        Files.writeString(grades, "1147032, CS102, Fall2024, 55\n", StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(grades, before);
+        assertNull(Snapshot.read(dir));
+    }
+
+    // same size and the old mtime, as an editor or a copy that keeps times may leave it
+    @Test
+    void isStaleAfterAnEditThatKeepsSizeAndTime() throws IOException {
+        writeSnapshot();
+        Path grades = dir.resolve("grades.txt");
+        FileTime before = Files.getLastModifiedTime(grades);
+        String text = Files.readString(grades);
+        Files.writeString(grades, text.replace(", 76", ", 67"));
+        assertEquals(text.length(), Files.size(grades));
+        Files.setLastModifiedTime(grades, before);
+        assertNull(Snapshot.read(dir));
+    }
+
+    @Test
+    void staysFreshWhenADataFileIsOnlyTouched() throws IOException {
+        writeSnapshot();
+        Files.setLastModifiedTime(dir.resolve("students.txt"), FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        assertNotNull(Snapshot.read(dir));
+    }
+
+    @Test
+    void isIgnoredWhenDamaged() throws IOException {
+        writeSnapshot();
+        Path file = dir.resolve(Snapshot.FILE_NAME);
+        byte[] b = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(b, b.length - 3));
+        assertNull(Snapshot.read(dir));
+
+        b[0] ^= 0x7f;
+        Files.write(file, b);
+        assertNull(Snapshot.read(dir));
+    }
+
+    // the last byte is a grade value: without the body checksum it would decode to a different grade
+    @Test
+    void isIgnoredWhenTheBodyDoesNotMatchItsChecksum() throws IOException {
+        writeSnapshot();
+        Path file = dir.resolve(Snapshot.FILE_NAME);
+        byte[] b = Files.readAllBytes(file);
+        b[b.length - 1] ^= 0x01;
+        Files.write(file, b);
+        assertNull(Snapshot.read(dir));
+    }
+
+    // a count that is out of range although the body matches its checksum, as a buggy writer could leave it
+    @Test
+    void isIgnoredWhenACountIsOutOfRange() throws IOException {
+        writeSnapshot();
+        Path file = dir.resolve(Snapshot.FILE_NAME);
+        byte[] b = Files.readAllBytes(file);
+        for (int count : new int[] {-1, Integer.MAX_VALUE}) {
+            ByteBuffer.wrap(b).putInt(BODY, count);
+            CRC32 crc = new CRC32();
+            crc.update(b, BODY, b.length - BODY);
+            ByteBuffer.wrap(b).putInt(BODY - 4, (int) crc.getValue());
+            Files.write(file, b);
+            assertNull(Snapshot.read(dir), () -> "string count " + count);
+        }
+
+        DataLoader.LoadResult res = DataLoader.loadAll(dir.toString());
+        assertFalse(res.fromSnapshot());
+        assertEquals(TestData.STUDENTS.lines().count(), res.students().size());
+        assertEquals(TestData.GRADES.lines().count(), res.grades().size());
+    }
+
+    @Test
+    void registryLoadsFromTheSnapshotItWrote() {
+        TestData.folder(dir);
+        Registry first = new Registry();
+        first.load(dir.toString());
+        assertTrue(Files.exists(dir.resolve(Snapshot.FILE_NAME)));
+        first.close();
+
+        assertTrue(DataLoader.loadAll(dir.toString()).fromSnapshot());
+        Registry second = new Registry();
+        second.load(dir.toString());
+        assertEquals(first.studentIds(), second.studentIds());
+        for (String id : first.studentIds()) assertEquals(first.findStudentDisplay(id), second.findStudentDisplay(id));
+        assertEquals(first.findGradeDisplay("9322159", "CS501"), second.findGradeDisplay("9322159", "CS501"));
+        assertEquals(query(first, "grade"), query(second, "grade"));
+        assertEquals(query(first, "student"), query(second, "student"));
+        second.close();
+    }
+
+    // adds after a snapshot load go on from the rows and strings it added in bulk
+    @Test
+    void registryLoadedFromASnapshotTakesNewGrades() {
+        TestData.folder(dir);
+        try (Registry first = new Registry()) {
+            first.load(dir.toString());
+        }
+        System.setProperty("registry.durability", "none");
+        try {
+            Registry r = new Registry();
+            r.load(dir.toString());
+            assertEquals("error: grade for (9024882, CS101) is already present", r.addGrade("9024882, CS101, Fall2025, 90"));
+            assertEquals("1 record added", r.addGrade("9024882, CS501, Spring2024, 90"));
+            assertNotNull(r.findGrade("9024882", "CS501"));
+            assertEquals(TestData.GRADES.lines().count() + 1, query(r, "grade").lines().count() - 1);
+            r.close();
+        } finally {
+            System.clearProperty("registry.durability");
+        }
+    }
+
+    private static String query(Registry r, String entity) {
+        StringBuilder out = new StringBuilder();
+        r.queryTo(entity, "", out);
+        return out.toString();
+    }
+}
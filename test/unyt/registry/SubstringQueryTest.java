@@ -0,0 +1,128 @@
+package unyt.registry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// '~' queries on the trigram-indexed fields against a brute-force contains() over every record: the
+// index may only narrow the candidates, never lose a match, for values shorter than a trigram, values
+// whose trigrams all occur but never together, non-ASCII text, and records added after the load.
+class SubstringQueryTest {
+
+    @TempDir
+    Path dir;
+
+    private Registry registry;
+    private PrintStream stdout;
+    private final List<Student> students = new ArrayList<>();
+    private final List<Course> courses = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        System.setProperty("registry.durability", "none");
+        System.setProperty("registry.snapshot", "false");
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        TestData.folder(dir);
+        registry = new Registry();
+        registry.load(dir.toString());
+        DataLoader.LoadResult loaded = DataLoader.loadAll(dir.toString(), false);
+        students.addAll(loaded.students());
+        courses.addAll(loaded.courses());
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.close();
+        System.setOut(stdout);
+        System.clearProperty("registry.durability");
+        System.clearProperty("registry.snapshot");
+    }
+
+    @Test
+    void studentQueriesMatchAScanOfEveryStudent() {
+        addStudent("5550001, Ann, Lee, ann@uni.al, UG");
+        addStudent("5550002, Zo\u00eb, \u00c7elaj, zo\u00eb.\u00e7elaj@uni.al, UG");
+        addStudent("5550003, Ji\u0159\u00ed, Nov\u00e1k, jiri@\u00fani.cz, G");
+        addStudent("5550004, \u674e, \u5c0f\u9f99\u5c0f\u9f99, li@uni.cn, G");
+        addStudent("5550005, Brownie, Weaverson, brown.weaver@shaw.com, UG");
+
+        check("student", "name", Student::name, students);
+        check("student", "surname", Student::surname, students);
+        check("student", "email", Student::email, students);
+    }
+
+    @Test
+    void courseQueriesMatchAScanOfEveryCourse() {
+        addCourse("CS202, Algorithms, 4");
+        addCourse("CS203, Hyrje n\u00eb Programim, 4");
+        addCourse("CS204, \u00dcbersetzerbau und \u00dcbung, 3");
+        addCourse("CS205, Data, 3");
+
+        check("course", "title", Course::title, courses);
+    }
+
+    private void addStudent(String line) {
+        assertEquals("1 record added", registry.addStudent(line));
+        String[] p = line.split(", ", -1);
+        students.add(new Student(p[0], p[1], p[2], p[3], Level.valueOf(p[4])));
+    }
+
+    private void addCourse(String line) {
+        assertEquals("1 record added", registry.addCourse(line));
+        String[] p = line.split(", ", -1);
+        courses.add(new Course(p[0], p[1], Integer.parseInt(p[2])));
+    }
+
+    private <T> void check(String entity, String field, Function<T, String> value, List<T> records) {
+        for (String v : values(records, value)) {
+            long expected = records.stream().filter(r -> value.apply(r).contains(v)).count();
+            assertEquals(expected, found(registry.queryDisplay(entity, field + "~" + v)), () -> field + "~" + v);
+        }
+    }
+
+    // every substring of the records' values up to 5 characters, some that occur in no record, and
+    // pieces of two different values joined, whose trigrams all occur in some record but not in one
+    private static <T> Set<String> values(List<T> records, Function<T, String> value) {
+        Set<String> values = new LinkedHashSet<>(List.of("", "x", "zz", "Qqq", "xyz", "\u00eb", "\u00e7el", "\u5c0f\u9f99", "@@@"));
+        List<String> all = new ArrayList<>();
+        for (T r : records) all.add(value.apply(r));
+        for (String s : all) {
+            for (int i = 0; i < s.length(); i++) {
+                for (int j = i + 1; j <= Math.min(s.length(), i + 5); j++) values.add(s.substring(i, j));
+            }
+            values.add(s);
+        }
+
+        Random rnd = new Random(9);
+        for (int i = 0; i < 300; i++) {
+            String a = all.get(rnd.nextInt(all.size()));
+            String b = all.get(rnd.nextInt(all.size()));
+            if (a.length() < 3 || b.length() < 3) continue;
+            int ai = rnd.nextInt(a.length() - 2);
+            int bi = rnd.nextInt(b.length() - 2);
+            values.add(a.substring(ai, ai + 3) + b.substring(bi, bi + 3));
+        }
+        // the criteria syntax trims values and splits on ", ", so these cannot be queried as they are
+        values.removeIf(v -> !v.equals(v.trim()) || v.contains(", ") || v.contains("=") || v.contains("~"));
+        return values;
+    }
+
+    // the count in the "N records found" header
+    private static long found(String output) {
+        return Long.parseLong(output.substring(0, output.indexOf(' ')));
+    }
+}
@@ -0,0 +1,68 @@
+package unyt.registry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+// Small data folders for the tests, and records rendered as data file lines so they can be compared.
+final class TestData {
+    private TestData() {}
+
+    static final String STUDENTS = """
+            9024882, Jessica, Weaver, jessica.weaver52@shaw.com, UG
+            1147032, Karen, Brown, , UG
+            9322159, Michael, Brown, michael.brown72@hall-baker.com, G
+            """;
+    static final String COURSES = """
+            CS101, Introduction to Programming I (Java), 4
+            CS102, Data Structures, 4
+            CS501, Advanced Topics, 3
+            """;
+    static final String GRADES = """
+            9024882, CS101, Spring2024, 76
+            9024882, CS102, Fall2024, 70
+            1147032, CS101, Spring2024, 92
+            9322159, CS501, Fall2024, 88
+            """;
+
+    static Path folder(Path dir) {
+        return folder(dir, STUDENTS, COURSES, GRADES);
+    }
+
+    static Path folder(Path dir, String students, String courses, String grades) {
+        try {
+            Files.writeString(dir.resolve("students.txt"), students);
+            Files.writeString(dir.resolve("courses.txt"), courses);
+            Files.writeString(dir.resolve("grades.txt"), grades);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return dir;
+    }
+
+    static String line(Student s) {
+        return s.id() + ", " + s.name() + ", " + s.surname() + ", " + s.email() + ", " + s.level();
+    }
+
+    static String line(Course c) {
+        return c.code() + ", " + c.title() + ", " + c.credits();
+    }
+
+    static String line(Evaluation e) {
+        return e.studentId() + ", " + e.courseCode() + ", " + e.semester() + ", " + e.numericGrade();
+    }
+
+    static List<String> studentLines(List<Student> list) {
+        return list.stream().map(TestData::line).toList();
+    }
+
+    static List<String> courseLines(List<Course> list) {
+        return list.stream().map(TestData::line).toList();
+    }
+
+    static List<String> gradeLines(List<Evaluation> list) {
+        return list.stream().map(TestData::line).toList();
+    }
+}
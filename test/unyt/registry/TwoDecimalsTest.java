@@ -0,0 +1,90 @@
+package unyt.registry;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TwoDecimalsTest {
+
+    @Test
+    void formatsLikeStringFormat() {
+        for (double x : new double[]{0.0, 1.0, 3.5, 3.67, 2.33, 10.0, 4.0, 0.05, 12.34, 123456.78}) {
+            assertEquals(String.format(Locale.US, "%.2f", x), TwoDecimals.format(x), "x = " + x);
+        }
+    }
+
+    // Formatter rounds the shortest decimal digits half up: 0.125 and 2.5 are exact binary ties, 1.005 and
+    // 2.675 are just below theirs in binary, 0.045 rounds down in half-even and up in half-up
+    @Test
+    void roundsTiesHalfUpOnTheDecimalDigits() {
+        same(0.125, 0.375, 2.5, 0.005, 0.015, 0.045, 1.005, 1.115, 2.675, 1.125, 4.445, 8.345, 1234567.125);
+        assertEquals("0.13", TwoDecimals.format(0.125));
+        assertEquals("1.01", TwoDecimals.format(1.005));
+        assertEquals("0.05", TwoDecimals.format(0.045));
+    }
+
+    @Test
+    void roundsUpToTheNextInteger() {
+        same(9.995, 99.995, 0.995, 9.999, 999.9951, 3.9999999);
+        assertEquals("10.00", TwoDecimals.format(9.995));
+        assertEquals("100.00", TwoDecimals.format(99.995));
+    }
+
+    @Test
+    void keepsTheSignOfNegativeValues() {
+        same(-0.125, -1.005, -2.675, -9.995, -3.67, -12.34, -0.001, -0.005, -0.0, -1e-300);
+        assertEquals("-0.13", TwoDecimals.format(-0.125));
+        assertEquals("-0.00", TwoDecimals.format(-0.001));
+        assertEquals("-0.00", TwoDecimals.format(-0.0));
+    }
+
+    @Test
+    void formatsZeroAndLargeValues() {
+        same(0.0, Double.MIN_VALUE, 1e-5, 1e9 + 0.125, 1e15 + 0.125, 4.5e15, 8.99e16, 9.0e16, 1e17, 1e300, Double.MAX_VALUE,
+                -1e17, Long.MAX_VALUE, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN);
+        assertEquals("0.00", TwoDecimals.format(0.0));
+    }
+
+    // thousandths, ties among them, and doubles spread over every magnitude the fast path takes
+    @Test
+    void formatsGeneratedValues() {
+        for (int m = -100_000; m <= 100_000; m++) same(m / 1000.0);
+        Random rnd = new Random(12);
+        for (int i = 0; i < 200_000; i++) {
+            double x = rnd.nextDouble() * Math.pow(10, rnd.nextInt(19) - 3);
+            same(rnd.nextBoolean() ? x : -x);
+            long tie = rnd.nextLong() >>> (1 + rnd.nextInt(50));
+            same((tie * 10 + 5) / 1000.0);
+        }
+    }
+
+    @Test
+    void formatsEveryRegistryGpa() {
+        // GPAs are round2 of a points total over a credits total
+        for (int credits = 1; credits <= 200; credits++) {
+            for (int points = 0; points <= 4 * credits; points++) {
+                double gpa = GradingService.round2((double) points / credits);
+                assertEquals(String.format(Locale.US, "%.2f", gpa), TwoDecimals.format(gpa), points + "/" + credits);
+            }
+        }
+    }
+
+    private static void same(double... values) {
+        for (double x : values) {
+            assertEquals(String.format(Locale.US, "%.2f", x), TwoDecimals.format(x), () -> "x = " + x);
+        }
+    }
+
+    @Test
+    void appendsToAnyAppendable() throws IOException {
+        StringWriter w = new StringWriter();
+        TwoDecimals.appendTo(w.append("gpa: "), 3.1);
+        assertEquals("gpa: 3.10", w.toString());
+        assertEquals("x 2.50", TwoDecimals.append(new StringBuilder("x "), 2.5).toString());
+    }
+}
@@ -0,0 +1,161 @@
+package unyt.registry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The character scanners in Validation against the regex-based validators they replaced: for generated
+// inputs both accept the same values and reject the rest with the same message.
+class ValidationTest {
+
+    // the validators as they were before the scanners, kept verbatim as the reference
+    private static final class Regex {
+        static void validateStudentId(String id) {
+            if (id == null || id.trim().isEmpty()) throw new IllegalArgumentException("missing student ID");
+            if (!id.trim().matches("\\d+")) throw new IllegalArgumentException("invalid student ID");
+        }
+
+        static void validateCourseCode(String code) {
+            if (code == null || code.trim().isEmpty()) throw new IllegalArgumentException("missing course code");
+            String c = code.trim();
+            if (!c.matches("[A-Z]{2,4}\\d{3}")) throw new IllegalArgumentException("invalid course code");
+        }
+
+        static CourseLevel computeCourseLevel(String code) {
+            validateCourseCode(code);
+            String c = code.trim();
+            String num = c.substring(c.length() - 3);
+            char first = num.charAt(0);
+            if (first >= '1' && first <= '4') return CourseLevel.UNDERGRADUATE;
+            if (first >= '5' && first <= '9') return CourseLevel.GRADUATE;
+            throw new IllegalArgumentException("invalid course code");
+        }
+
+        static void validateSemester(String semester) {
+            if (semester == null || semester.trim().isEmpty()) throw new IllegalArgumentException("missing semester");
+            String s = semester.trim();
+            if (!s.matches("(Spring|Fall)\\d{4}")) throw new IllegalArgumentException("invalid semester");
+        }
+
+        static void validateEmailOptional(String email) {
+            if (email == null) return;
+            String e = email.trim();
+            if (e.isEmpty()) return;
+            int at = e.indexOf('@');
+            int dot = e.lastIndexOf('.');
+            if (at <= 0 || dot <= at + 1 || dot >= e.length() - 1) {
+                throw new IllegalArgumentException("invalid email");
+            }
+        }
+
+        static Level parseLevel(String s) {
+            if (s == null || s.trim().isEmpty()) throw new IllegalArgumentException("missing level");
+            String t = s.trim();
+            if (t.equals("UG")) return Level.UG;
+            if (t.equals("G")) return Level.G;
+            throw new IllegalArgumentException("invalid level");
+        }
+    }
+
+    // characters the validators treat differently: ASCII and other digits, letters in and out of A-Z,
+    // the separators of emails, whitespace that trim() removes and whitespace it keeps
+    private static final String ALPHABET = "0123456789AZCSMabz@.-_ \t\u000b\u00a0\u0660\u0669\uff10\uff19\u00c7";
+
+    @Test
+    void studentIdsAgree() {
+        check(inputs("1", "9024882", "007", "12a", "+1", "-1", "1.0", "\u0661"), Validation::validateStudentId, Regex::validateStudentId);
+    }
+
+    @Test
+    void courseCodesAgree() {
+        List<String> inputs = inputs("CS101", "CSE501", "ABCD999", "AB000", "A101", "ABCDE101", "cs101", "CS10", "CS1001",
+                "CS10a", "CS\u0661\u0660\u0661", "\u00c7S101", "CS 101");
+        check(inputs, Validation::validateCourseCode, Regex::validateCourseCode);
+        check(inputs, Validation::computeCourseLevel, Regex::computeCourseLevel);
+    }
+
+    @Test
+    void semestersAgree() {
+        check(inputs("Spring2024", "Fall2024", "Fall20245", "Spring", "Fall", "Summer2024", "fall2024", "Fall 2024",
+                "Fall\uff12\uff10\uff12\uff14", "SpringFall", "Fal2024l"), Validation::validateSemester, Regex::validateSemester);
+    }
+
+    @Test
+    void emailsAgree() {
+        check(inputs("a@b.c", "a.b@c.d", "@b.c", "a@.c", "a@b.", "a@b", "a.b", "a@@b.c", "a@b..c", "a@b.c.", ".a@b.c", "@", "."),
+                Validation::validateEmailOptional, Regex::validateEmailOptional);
+    }
+
+    @Test
+    void levelsAgree() {
+        check(inputs("UG", "G", "ug", "g", "PhD", "U G", "UGG", "GG"), Validation::parseLevel, Regex::parseLevel);
+    }
+
+    // the given values, the same with whitespace around them, null, and random strings
+    private static List<String> inputs(String... samples) {
+        List<String> inputs = new ArrayList<>();
+        inputs.add(null);
+        inputs.add("");
+        for (String s : samples) {
+            inputs.add(s);
+            inputs.add(" " + s + "\t");
+            inputs.add("\u00a0" + s);
+        }
+
+        Random rnd = new Random(5);
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            if (rnd.nextInt(3) == 0) {
+                // mutate a sample: most generated strings should be close to a valid value
+                sb.append(samples[rnd.nextInt(samples.length)]);
+                int edits = 1 + rnd.nextInt(2);
+                for (int e = 0; e < edits && sb.length() > 0; e++) {
+                    int at = rnd.nextInt(sb.length());
+                    switch (rnd.nextInt(3)) {
+                        case 0 -> sb.setCharAt(at, ALPHABET.charAt(rnd.nextInt(ALPHABET.length())));
+                        case 1 -> sb.deleteCharAt(at);
+                        default -> sb.insert(at, ALPHABET.charAt(rnd.nextInt(ALPHABET.length())));
+                    }
+                }
+            } else {
+                int len = rnd.nextInt(12);
+                for (int k = 0; k < len; k++) sb.append(ALPHABET.charAt(rnd.nextInt(ALPHABET.length())));
+            }
+            inputs.add(sb.toString());
+        }
+        return inputs;
+    }
+
+    private interface Check {
+        void apply(String s);
+    }
+
+    private static void check(List<String> inputs, Check scanner, Check regex) {
+        check(inputs, s -> {
+            scanner.apply(s);
+            return null;
+        }, s -> {
+            regex.apply(s);
+            return null;
+        });
+    }
+
+    private static <T> void check(List<String> inputs, Function<String, T> scanner, Function<String, T> regex) {
+        for (String s : inputs) {
+            assertEquals(outcome(regex, s), outcome(scanner, s), () -> "input: [" + s + "]");
+        }
+    }
+
+    private static <T> String outcome(Function<String, T> f, String s) {
+        try {
+            return "ok " + f.apply(s);
+        } catch (IllegalArgumentException e) {
+            return "error " + e.getMessage();
+        }
+    }
+}